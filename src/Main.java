@@ -30,10 +30,11 @@ public class Main {
     SnapModel model = new SnapModelImpl();
     SnapController controller;
 
-    // If the command-line argument is "-file" followed by a script file, run in script mode
+    // If the command-line argument is "-file" followed by a script file, run in script mode,
+    // decoding the images of upcoming loads in the background
     if (args.length == 2 && args[0].equals("-file")) {
       try (Reader input = new FileReader(args[1])) {
-        controller = new SnapControllerImpl(input, model);
+        controller = new SnapControllerImpl(input, model, true);
         controller.start();
       } catch (IOException e) {
         throw new IOException("Error reading script file: " + e.getMessage(), e);
@@ -0,0 +1,90 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+import model.MappedSnap;
+
+/**
+ * The BinaryPnmReader class reads binary PPM and PGM images, the P6 and P5 formats. The file is
+ * mapped into memory and its pixel data is copied out in bulk a row at a time, or, for P6, left
+ * where it is and wrapped in a MappedSnap.
+ */
+class BinaryPnmReader {
+
+  /**
+   * Reads a binary PPM or PGM image from a file.
+   *
+   * @param filename the name of the P6 or P5 file to read.
+   * @return a 3D array representing the image; grey values are copied into all three channels.
+   * @throws IOException if an error occurs while reading the file.
+   */
+  static int[][][] read(String filename) throws IOException {
+    ByteBuffer data = PnmHeader.map(filename);
+    PnmHeader header = PnmHeader.parse(data);
+    ByteBuffer payload = getPayload(data, header);
+    int width = header.getWidth();
+    int height = header.getHeight();
+    if (header.getChannels() == 3) {
+      return new MappedSnap(payload, width, height).getSnap();
+    }
+
+    int[][][] output = new int[height][width][3];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      byte[] row = new byte[width];
+      payload.get(i * width, row);
+      int[][] outputRow = output[i];
+      for (int j = 0; j < width; j++) {
+        int grey = row[j] & 0xFF;
+        int[] pixel = outputRow[j];
+        pixel[0] = grey;
+        pixel[1] = grey;
+        pixel[2] = grey;
+      }
+    });
+    return output;
+  }
+
+  /**
+   * Maps a binary PPM image into memory as a Snap, without copying its pixels.
+   *
+   * @param filename the name of the P6 file to map.
+   * @return the image, backed by the mapped file.
+   * @throws IOException if an error occurs while reading the file.
+   */
+  static MappedSnap map(String filename) throws IOException {
+    ByteBuffer data = PnmHeader.map(filename);
+    PnmHeader header = PnmHeader.parse(data);
+    if (header.getFormat() != '6') {
+      throw new IllegalArgumentException("Only P6 images can be mapped");
+    }
+    return new MappedSnap(getPayload(data, header), header.getWidth(), header.getHeight());
+  }
+
+  /**
+   * Checks the header of a binary file and gets the part of it holding the pixel data.
+   *
+   * @param data   the bytes of the file.
+   * @param header the header of the file.
+   * @return the pixel data, from index 0.
+   * @throws IllegalArgumentException if the file is not P6 or P5, its maximum value is not 255,
+   *                                  or it ends before its pixel data does.
+   */
+  private static ByteBuffer getPayload(ByteBuffer data, PnmHeader header)
+          throws IllegalArgumentException {
+    if (header.isPlain()) {
+      throw new IllegalArgumentException("Invalid binary PNM format: Only P6 and P5 supported");
+    }
+    int channels = header.getChannels();
+    if (header.getMaxVal() != 255) {
+      throw new IllegalArgumentException("Unsupported max "
+              + (channels == 3 ? "color" : "grey") + " value: " + header.getMaxVal());
+    }
+    long length = (long) header.getWidth() * header.getHeight() * channels;
+    if (header.getDataOffset() + length > data.limit()) {
+      throw new IllegalArgumentException("Image data ends early");
+    }
+    return data.slice(header.getDataOffset(), (int) length);
+  }
+}
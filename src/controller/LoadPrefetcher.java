@@ -0,0 +1,154 @@
+package controller;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import model.Snap;
+
+/**
+ * The LoadPrefetcher class decodes the images of upcoming load commands in a script on a
+ * background pool while the commands before them run, so that reading and decoding files
+ * overlaps with processing. As the script runs it keeps the next few loads in flight; when a
+ * load is reached its image is taken from the prefetcher, waiting for it if it is still being
+ * decoded.
+ *
+ * <p>A load is never prefetched if an earlier command in the script writes the file it reads,
+ * since the file has to be read after that command has run. Only a few loads are kept in
+ * flight at once so that a long script does not decode all of its images up front.
+ */
+class LoadPrefetcher implements Closeable {
+
+  // The most loads decoded ahead of the script at once.
+  private static final int LOOKAHEAD = 2;
+  // The number of threads the files are read and decoded on.
+  private static final int THREADS = 2;
+
+  /**
+   * A load command and the image it is decoding, once it has been started.
+   */
+  private static class PendingLoad {
+    private final int line;
+    private final String filename;
+    private Future<Snap> image;
+
+    /**
+     * Constructs a load that has not been started.
+     *
+     * @param line     the index of the load command in the script.
+     * @param filename the name of the file it reads.
+     */
+    PendingLoad(int line, String filename) {
+      this.line = line;
+      this.filename = filename;
+    }
+  }
+
+  private final ExecutorService pool;
+  // The loads that can be prefetched and have not been started, in script order.
+  private final Deque<PendingLoad> waiting;
+  // The loads that have been started and not taken, in script order.
+  private final Deque<PendingLoad> started;
+
+  /**
+   * Constructs a prefetcher for a script, finding the loads in it that can be prefetched.
+   * Nothing is decoded until advance is called.
+   *
+   * @param script the commands of the script, each split into its words.
+   */
+  LoadPrefetcher(List<String[]> script) {
+    this.waiting = new ArrayDeque<>();
+    this.started = new ArrayDeque<>();
+    Set<Path> written = new HashSet<>();
+    for (int line = 0; line < script.size(); line++) {
+      String[] command = script.get(line);
+      if (command[0].equals("load") && command.length >= 3) {
+        if (!written.contains(normalize(command[1]))) {
+          waiting.add(new PendingLoad(line, command[1]));
+        }
+      } else if (command[0].equals("save") && command.length >= 2) {
+        written.add(normalize(command[1]));
+      } else if (command[0].equals("stream") && command.length >= 3) {
+        written.add(normalize(command[2]));
+      }
+    }
+    this.pool = Executors.newFixedThreadPool(THREADS, task -> {
+      Thread thread = new Thread(task, "snap-prefetch");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Moves the prefetcher up to a command of the script. Loads before the command that were
+   * never taken are dropped, and loads from the command on are started until the lookahead is
+   * full.
+   *
+   * @param line the index of the command about to run.
+   */
+  void advance(int line) {
+    while (!started.isEmpty() && started.peekFirst().line < line) {
+      started.pollFirst().image.cancel(true);
+    }
+    while (!waiting.isEmpty() && waiting.peekFirst().line < line) {
+      waiting.pollFirst();
+    }
+    while (started.size() < LOOKAHEAD && !waiting.isEmpty()) {
+      PendingLoad load = waiting.pollFirst();
+      load.image = pool.submit(() -> SnapUtil.loadSnap(load.filename));
+      started.add(load);
+    }
+  }
+
+  /**
+   * Takes the image of a load command, waiting for it to finish decoding if it has not yet.
+   *
+   * @param line     the index of the load command in the script.
+   * @param filename the name of the file the command reads.
+   * @return the decoded image, or null if the load was not prefetched or failed, in which case
+   *         the file should be loaded directly.
+   */
+  Snap take(int line, String filename) {
+    PendingLoad load = started.peekFirst();
+    if (load == null || load.line != line || !load.filename.equals(filename)) {
+      return null;
+    }
+    started.pollFirst();
+    try {
+      return load.image.get();
+    } catch (ExecutionException e) {
+      // Loading again directly reports the error as a load without prefetching would
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  /**
+   * Stops the background pool, dropping any loads still in flight.
+   */
+  @Override
+  public void close() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * Gets the absolute form of a path, so that different spellings of one file compare equal.
+   *
+   * @param filename the name of the file.
+   * @return the absolute, normalized path of the file.
+   */
+  private static Path normalize(String filename) {
+    return Paths.get(filename).toAbsolutePath().normalize();
+  }
+}
@@ -0,0 +1,269 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The PlainPnmReader class reads plain (ASCII) PPM and PGM images, the P3 and P2 formats. The
+ * file is mapped into memory and parsed a byte at a time: whitespace and comments are skipped
+ * wherever they appear, any number of samples may share a line, and digits are accumulated
+ * straight into ints without building Strings.
+ *
+ * <p>Large files are split at line breaks into chunks that are parsed in parallel. A comment
+ * never runs past the end of its line, so every chunk starts outside of any comment. The samples
+ * in each chunk are counted first, so that each chunk knows where its first sample goes in the
+ * image, and are then parsed into place.
+ */
+class PlainPnmReader {
+
+  // Files with fewer bytes of samples than this are parsed on a single thread.
+  private static final int PARALLEL_THRESHOLD = 1 << 20;
+
+  private final ByteBuffer data;
+  private final int end;
+  private int position;
+
+  /**
+   * Constructs a reader over a range of bytes.
+   *
+   * @param data  the bytes of the file.
+   * @param start the index of the first byte to read.
+   * @param end   the index after the last byte to read.
+   */
+  private PlainPnmReader(ByteBuffer data, int start, int end) {
+    this.data = data;
+    this.position = start;
+    this.end = end;
+  }
+
+  /**
+   * Reads a plain PPM or PGM image from a file, parsing large files in parallel.
+   *
+   * @param filename the name of the P3 or P2 file to read.
+   * @return a 3D array representing the image; grey values are copied into all three channels.
+   * @throws IOException if an error occurs while reading the file.
+   */
+  static int[][][] read(String filename) throws IOException {
+    return read(filename, true);
+  }
+
+  /**
+   * Reads a plain PPM or PGM image from a file.
+   *
+   * @param filename the name of the P3 or P2 file to read.
+   * @param parallel whether large files may be split into chunks parsed in parallel.
+   * @return a 3D array representing the image; grey values are copied into all three channels.
+   * @throws IOException if an error occurs while reading the file.
+   */
+  static int[][][] read(String filename, boolean parallel) throws IOException {
+    return parse(PnmHeader.map(filename), parallel);
+  }
+
+  /**
+   * Parses a plain PPM or PGM image held in a buffer, from its start to its limit.
+   *
+   * @param data     the bytes of the file.
+   * @param parallel whether large files may be split into chunks parsed in parallel.
+   * @return a 3D array representing the image; grey values are copied into all three channels.
+   * @throws IllegalArgumentException if the bytes do not hold a P3 or P2 image with a maximum
+   *                                  value of 255.
+   */
+  static int[][][] parse(ByteBuffer data, boolean parallel) throws IllegalArgumentException {
+    PnmHeader header = PnmHeader.parse(data);
+    if (!header.isPlain()) {
+      throw new IllegalArgumentException("Invalid plain PNM format: Only P3 and P2 supported");
+    }
+    int channels = header.getChannels();
+    int width = header.getWidth();
+    int height = header.getHeight();
+    if (header.getMaxVal() != 255) {
+      throw new IllegalArgumentException("Unsupported max "
+              + (channels == 3 ? "color" : "grey") + " value: " + header.getMaxVal());
+    }
+
+    int limit = data.limit();
+    int bodyStart = header.getDataOffset();
+    // Counting before parsing only pays off when the chunks really run at the same time
+    int threads = ForkJoinPool.getCommonPoolParallelism();
+    int chunks = parallel && threads > 1 && limit - bodyStart >= PARALLEL_THRESHOLD
+            ? 4 * threads : 1;
+    int[] bounds = new int[chunks + 1];
+    bounds[0] = bodyStart;
+    for (int c = 1; c < chunks; c++) {
+      // Move each split forward to just after a line break
+      int split = Math.max(bounds[c - 1],
+              bodyStart + (int) ((long) (limit - bodyStart) * c / chunks));
+      while (split < limit && data.get(split - 1) != '\n') {
+        split++;
+      }
+      bounds[c] = split;
+    }
+    bounds[chunks] = limit;
+
+    long[] firstSample = new long[chunks + 1];
+    if (chunks > 1) {
+      long[] counts = new long[chunks];
+      IntStream.range(0, chunks).parallel().forEach(c ->
+              counts[c] = new PlainPnmReader(data, bounds[c], bounds[c + 1]).countSamples());
+      for (int c = 0; c < chunks; c++) {
+        firstSample[c + 1] = firstSample[c] + counts[c];
+      }
+    } else {
+      firstSample[1] = Long.MAX_VALUE;
+    }
+    long samples = (long) width * height * channels;
+    if (firstSample[chunks] < samples) {
+      throw new IllegalArgumentException("Image data ends after " + firstSample[chunks]
+              + " of " + samples + " samples");
+    }
+
+    int[][][] output = new int[height][width][3];
+    IntStream.range(0, chunks).parallel().forEach(c -> {
+      long parsed = new PlainPnmReader(data, bounds[c], bounds[c + 1])
+              .parseSamples(output, channels, firstSample[c], samples);
+      if (chunks == 1 && parsed < samples) {
+        throw new IllegalArgumentException("Image data ends after " + parsed
+                + " of " + samples + " samples");
+      }
+    });
+    return output;
+  }
+
+  /**
+   * Counts the samples left in this reader's range.
+   *
+   * @return the number of samples.
+   */
+  private long countSamples() {
+    long count = 0;
+    skipSeparators();
+    while (position < end) {
+      while (position < end && !isSeparator(data.get(position))) {
+        position++;
+      }
+      count++;
+      skipSeparators();
+    }
+    return count;
+  }
+
+  /**
+   * Parses the samples left in this reader's range into an image, stopping once the image is
+   * full.
+   *
+   * @param output   the image to fill in.
+   * @param channels the number of samples per pixel, 3 for P3 and 1 for P2.
+   * @param first    the index in the image of the first sample in this range.
+   * @param samples  the number of samples in the image.
+   * @return the index after the last sample parsed.
+   */
+  private long parseSamples(int[][][] output, int channels, long first, long samples) {
+    if (first >= samples) {
+      return first;
+    }
+    int width = output[0].length;
+    long pixel = first / channels;
+    int i = (int) (pixel / width);
+    int j = (int) (pixel % width);
+    int k = (int) (first % channels);
+    long index = first;
+
+    skipSeparators();
+    while (position < end && index < samples) {
+      int value = nextInt();
+      if (value > 255) {
+        throw new IllegalArgumentException("Sample out of range: " + value);
+      }
+      if (channels == 3) {
+        output[i][j][k] = value;
+      } else {
+        int[] rgb = output[i][j];
+        rgb[0] = value;
+        rgb[1] = value;
+        rgb[2] = value;
+      }
+      index++;
+      if (++k == channels) {
+        k = 0;
+        if (++j == width) {
+          j = 0;
+          i++;
+        }
+      }
+      skipSeparators();
+    }
+    return index;
+  }
+
+  /**
+   * Parses the next number, skipping any whitespace and comments before it.
+   *
+   * @return the number.
+   * @throws IllegalArgumentException if there is no number or it holds a character other than
+   *                                  a digit.
+   */
+  private int nextInt() throws IllegalArgumentException {
+    skipSeparators();
+    int start = position;
+    int value = 0;
+    while (position < end) {
+      byte b = data.get(position);
+      if (b >= '0' && b <= '9') {
+        if (value > (Integer.MAX_VALUE - 9) / 10) {
+          throw new IllegalArgumentException("Number too large in PNM file");
+        }
+        value = value * 10 + (b - '0');
+        position++;
+      } else if (isSeparator(b)) {
+        break;
+      } else {
+        throw new IllegalArgumentException("Invalid character in PNM file: " + (char) b);
+      }
+    }
+    if (position == start) {
+      throw new IllegalArgumentException("Unexpected end of PNM file");
+    }
+    return value;
+  }
+
+  /**
+   * Skips whitespace and comments up to the next number or the end of the range.
+   */
+  private void skipSeparators() {
+    while (position < end) {
+      byte b = data.get(position);
+      if (b == '#') {
+        while (position < end && data.get(position) != '\n') {
+          position++;
+        }
+      } else if (isSeparator(b)) {
+        position++;
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Checks whether a byte ends a number: whitespace or the start of a comment.
+   *
+   * @param b the byte to check.
+   * @return true if the byte is whitespace or '#'.
+   */
+  private static boolean isSeparator(byte b) {
+    return b == '#' || isWhitespace(b);
+  }
+
+  /**
+   * Checks whether a byte is whitespace as PNM files define it.
+   *
+   * @param b the byte to check.
+   * @return true if the byte is a space, tab, line feed, carriage return, vertical tab or form
+   *         feed.
+   */
+  static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == 0x0B || b == 0x0C;
+  }
+}
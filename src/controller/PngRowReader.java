@@ -0,0 +1,310 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The PngRowReader class decodes a PNG file one row at a time, from the top down. The
+ * compressed image data is fed through a single Inflater as the rows are asked for, and each
+ * row is unfiltered against the one before it, so only two rows of the image are ever held
+ * and every byte of the file is read and inflated exactly once.
+ *
+ * <p>Only non-interlaced 8-bit images are read: greyscale, RGB, indexed colour and RGB with
+ * alpha. Rows are given as packed RGB bytes with the same values a full decode through ImageIO
+ * gives: grey is copied into all three channels, indexed pixels are looked up in the palette,
+ * and alpha is dropped.
+ */
+class PngRowReader implements Closeable {
+
+  private static final long SIGNATURE = 0x89504E470D0A1A0AL;
+  private static final int IHDR = 0x49484452;
+  private static final int PLTE = 0x504C5445;
+  private static final int IDAT = 0x49444154;
+
+  private static final int GREY = 0;
+  private static final int RGB = 2;
+  private static final int INDEXED = 3;
+  private static final int RGB_ALPHA = 6;
+
+  private final DataInputStream in;
+  private final Inflater inflater;
+  private final int width;
+  private final int height;
+  private final int colorType;
+  // The number of bytes of each pixel in the image data.
+  private final int bytesPerPixel;
+  // The packed RGB values of each palette entry.
+  private byte[] palette;
+  // The bytes of image data left in the current IDAT chunk.
+  private int chunkRemaining;
+  // The compressed bytes read from the file and not yet handed to the inflater.
+  private final byte[] input;
+  // The filter type byte and the unfiltered bytes of the current row and the one before it.
+  private byte[] row;
+  private byte[] previous;
+  private int rowsRead;
+
+  /**
+   * Opens a PNG file and reads its header and every chunk up to its image data.
+   *
+   * @param filename the name of the PNG file.
+   * @throws IOException              if an error occurs while reading the file.
+   * @throws IllegalArgumentException if the file is not a PNG file, or is one that cannot be
+   *                                  read a row at a time.
+   */
+  PngRowReader(String filename) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)));
+    this.inflater = new Inflater();
+    this.input = new byte[1 << 16];
+    try {
+      if (in.readLong() != SIGNATURE || in.readInt() != 13 || in.readInt() != IHDR) {
+        throw new IllegalArgumentException("Not a PNG file: " + filename);
+      }
+      this.width = in.readInt();
+      this.height = in.readInt();
+      int bitDepth = in.readUnsignedByte();
+      this.colorType = in.readUnsignedByte();
+      int compression = in.readUnsignedByte();
+      int filter = in.readUnsignedByte();
+      int interlace = in.readUnsignedByte();
+      in.readInt(); // CRC
+      if (width <= 0 || height <= 0 || compression != 0 || filter != 0) {
+        throw new IllegalArgumentException("Invalid PNG header: " + filename);
+      }
+      if (bitDepth != 8 || interlace != 0 || colorType == 4 || colorType > RGB_ALPHA) {
+        throw new IllegalArgumentException("Only non-interlaced 8-bit grey, RGB, indexed and "
+                + "RGBA PNG files can be streamed");
+      }
+      this.bytesPerPixel = colorType == RGB ? 3 : colorType == RGB_ALPHA ? 4 : 1;
+      if ((long) width * bytesPerPixel + 1 > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("PNG rows too long to stream: " + filename);
+      }
+      this.row = new byte[width * bytesPerPixel + 1];
+      this.previous = new byte[row.length];
+      skipToImageData();
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width in pixels.
+   */
+  int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height in pixels.
+   */
+  int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Decodes the next row of the image as packed RGB bytes.
+   *
+   * @param rgb    the array to write the row to.
+   * @param offset the index of the first byte of the row, which takes width * 3 bytes.
+   * @throws IOException if the image data is corrupt or ends early, or every row has been read.
+   */
+  void readRow(byte[] rgb, int offset) throws IOException {
+    if (rowsRead == height) {
+      throw new EOFException("No rows left in PNG file");
+    }
+    byte[] swap = previous;
+    previous = row;
+    row = swap;
+    inflateRow();
+    unfilter();
+    toRgb(rgb, offset);
+    rowsRead++;
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    in.close();
+  }
+
+  /**
+   * Reads chunks until the first IDAT chunk, keeping the palette and skipping everything else.
+   *
+   * @throws IOException if an error occurs while reading the file.
+   */
+  private void skipToImageData() throws IOException {
+    while (true) {
+      int length = in.readInt();
+      int type = in.readInt();
+      if (type == IDAT) {
+        chunkRemaining = length;
+        break;
+      }
+      if (type == PLTE) {
+        if (length % 3 != 0 || length > 256 * 3) {
+          throw new IllegalArgumentException("Invalid PNG palette");
+        }
+        palette = new byte[256 * 3];
+        in.readFully(palette, 0, length);
+      } else {
+        in.skipNBytes(length);
+      }
+      in.readInt(); // CRC
+    }
+    if (colorType == INDEXED && palette == null) {
+      throw new IllegalArgumentException("Indexed PNG file has no palette");
+    }
+  }
+
+  /**
+   * Inflates the filter byte and the bytes of the next row into the current row buffer,
+   * feeding the inflater from the IDAT chunks as it runs out of input.
+   *
+   * @throws IOException if the image data is corrupt or ends early.
+   */
+  private void inflateRow() throws IOException {
+    int filled = 0;
+    try {
+      while (filled < row.length) {
+        int inflated = inflater.inflate(row, filled, row.length - filled);
+        filled += inflated;
+        if (inflated == 0) {
+          if (inflater.finished() || inflater.needsDictionary()) {
+            throw new IOException("PNG image data ends early");
+          }
+          if (inflater.needsInput()) {
+            feedInflater();
+          }
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt PNG image data", e);
+    }
+  }
+
+  /**
+   * Hands the inflater the next run of compressed bytes, moving on to the next IDAT chunk when
+   * the current one is used up.
+   *
+   * @throws IOException if there is no image data left in the file.
+   */
+  private void feedInflater() throws IOException {
+    while (chunkRemaining == 0) {
+      in.readInt(); // CRC
+      int length = in.readInt();
+      if (in.readInt() != IDAT) {
+        throw new IOException("PNG image data ends early");
+      }
+      chunkRemaining = length;
+    }
+    int count = Math.min(chunkRemaining, input.length);
+    in.readFully(input, 0, count);
+    chunkRemaining -= count;
+    inflater.setInput(input, 0, count);
+  }
+
+  /**
+   * Undoes the filter of the current row against the previous one, in place. The row buffers
+   * start out as zeros, which is what the first row is filtered against.
+   *
+   * @throws IOException if the row uses an unknown filter.
+   */
+  private void unfilter() throws IOException {
+    int filter = row[0];
+    int length = row.length;
+    int bpp = bytesPerPixel;
+    switch (filter) {
+      case 0:
+        break;
+      case 1: // Sub
+        for (int i = 1 + bpp; i < length; i++) {
+          row[i] += row[i - bpp];
+        }
+        break;
+      case 2: // Up
+        for (int i = 1; i < length; i++) {
+          row[i] += previous[i];
+        }
+        break;
+      case 3: // Average
+        for (int i = 1; i < length; i++) {
+          int left = i > bpp ? row[i - bpp] & 0xFF : 0;
+          row[i] += (left + (previous[i] & 0xFF)) >> 1;
+        }
+        break;
+      case 4: // Paeth
+        for (int i = 1; i < length; i++) {
+          int left = i > bpp ? row[i - bpp] & 0xFF : 0;
+          int upLeft = i > bpp ? previous[i - bpp] & 0xFF : 0;
+          row[i] += paeth(left, previous[i] & 0xFF, upLeft);
+        }
+        break;
+      default:
+        throw new IOException("Unknown PNG filter type: " + filter);
+    }
+  }
+
+  /**
+   * Picks whichever of the left, upper and upper-left bytes is closest to left + up - upLeft.
+   *
+   * @param left   the byte to the left.
+   * @param up     the byte above.
+   * @param upLeft the byte above and to the left.
+   * @return the predicted byte.
+   */
+  private static int paeth(int left, int up, int upLeft) {
+    int estimate = left + up - upLeft;
+    int toLeft = Math.abs(estimate - left);
+    int toUp = Math.abs(estimate - up);
+    int toUpLeft = Math.abs(estimate - upLeft);
+    if (toLeft <= toUp && toLeft <= toUpLeft) {
+      return left;
+    }
+    return toUp <= toUpLeft ? up : upLeft;
+  }
+
+  /**
+   * Converts the unfiltered current row to packed RGB bytes.
+   *
+   * @param rgb    the array to write the row to.
+   * @param offset the index of the first byte of the row.
+   */
+  private void toRgb(byte[] rgb, int offset) {
+    switch (colorType) {
+      case RGB:
+        System.arraycopy(row, 1, rgb, offset, width * 3);
+        break;
+      case RGB_ALPHA:
+        for (int i = 1; i < row.length; i += 4) {
+          rgb[offset++] = row[i];
+          rgb[offset++] = row[i + 1];
+          rgb[offset++] = row[i + 2];
+        }
+        break;
+      case GREY:
+        for (int i = 1; i < row.length; i++) {
+          rgb[offset++] = row[i];
+          rgb[offset++] = row[i];
+          rgb[offset++] = row[i];
+        }
+        break;
+      default:
+        for (int i = 1; i < row.length; i++) {
+          System.arraycopy(palette, (row[i] & 0xFF) * 3, rgb, offset, 3);
+          offset += 3;
+        }
+        break;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The PnmHeader class holds the header of a PPM or PGM file: its format, its size, its maximum
+ * value, and where its pixel data starts. The fields may be separated by any whitespace and
+ * comments may appear between them, so a header can span any number of lines or share a line
+ * with the start of plain pixel data.
+ */
+class PnmHeader {
+
+  private final char format;
+  private final int width;
+  private final int height;
+  private final int maxVal;
+  private final int dataOffset;
+  // The position of the parser while the header is being read.
+  private int position;
+
+  /**
+   * Parses the header at the start of a buffer.
+   *
+   * @param data the bytes of the file.
+   * @throws IllegalArgumentException if the buffer does not start with a P2, P3, P5 or P6
+   *                                  header.
+   */
+  private PnmHeader(ByteBuffer data) throws IllegalArgumentException {
+    int limit = data.limit();
+    if (limit < 2 || data.get(0) != 'P' || "2356".indexOf(data.get(1)) < 0) {
+      throw new IllegalArgumentException("Invalid PNM format: Only P2, P3, P5 and P6 supported");
+    }
+    this.format = (char) data.get(1);
+    this.position = 2;
+    this.width = nextInt(data);
+    this.height = nextInt(data);
+    this.maxVal = nextInt(data);
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Invalid image size: " + width + "x" + height);
+    }
+    if (isPlain()) {
+      this.dataOffset = position;
+    } else {
+      // Binary pixel data starts after the single whitespace byte that ends the header
+      if (position >= limit || !PlainPnmReader.isWhitespace(data.get(position))) {
+        throw new IllegalArgumentException("Unexpected end of PNM header");
+      }
+      this.dataOffset = position + 1;
+    }
+  }
+
+  /**
+   * Parses the header at the start of a buffer.
+   *
+   * @param data the bytes of the file, from its start.
+   * @return the header.
+   * @throws IllegalArgumentException if the buffer does not start with a P2, P3, P5 or P6
+   *                                  header.
+   */
+  static PnmHeader parse(ByteBuffer data) throws IllegalArgumentException {
+    return new PnmHeader(data);
+  }
+
+  /**
+   * Reads the header of a PPM or PGM file. Only the start of a file too large to map whole is
+   * mapped, so the header of a file of any size can be read.
+   *
+   * @param filename the name of the file.
+   * @return the header.
+   * @throws IOException if an error occurs while reading the file.
+   */
+  static PnmHeader read(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      long size = Math.min(channel.size(), Integer.MAX_VALUE);
+      return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+    }
+  }
+
+  /**
+   * Maps the whole of a file into memory, read only.
+   *
+   * @param filename the name of the file.
+   * @return the bytes of the file.
+   * @throws IOException if an error occurs while reading the file or it is too large to map.
+   */
+  static ByteBuffer map(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("File too large to read: " + filename);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+  }
+
+  /**
+   * Gets the digit of the magic number, '2', '3', '5' or '6'.
+   *
+   * @return the format of the file.
+   */
+  char getFormat() {
+    return this.format;
+  }
+
+  /**
+   * Checks whether the pixel data is plain text (P2 or P3) rather than binary (P5 or P6).
+   *
+   * @return true if the pixel data is plain text.
+   */
+  boolean isPlain() {
+    return format == '2' || format == '3';
+  }
+
+  /**
+   * Gets the number of samples per pixel, 3 for PPM and 1 for PGM.
+   *
+   * @return the number of channels.
+   */
+  int getChannels() {
+    return format == '3' || format == '6' ? 3 : 1;
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width in pixels.
+   */
+  int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height in pixels.
+   */
+  int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the maximum sample value.
+   *
+   * @return the maximum value.
+   */
+  int getMaxVal() {
+    return this.maxVal;
+  }
+
+  /**
+   * Gets the index of the first byte of pixel data.
+   *
+   * @return the offset of the pixel data from the start of the file.
+   */
+  int getDataOffset() {
+    return this.dataOffset;
+  }
+
+  /**
+   * Parses the next header field, skipping any whitespace and comments before it.
+   *
+   * @param data the bytes of the file.
+   * @return the value of the field.
+   * @throws IllegalArgumentException if there is no field or it is not a number.
+   */
+  private int nextInt(ByteBuffer data) throws IllegalArgumentException {
+    int limit = data.limit();
+    while (position < limit) {
+      byte b = data.get(position);
+      if (b == '#') {
+        while (position < limit && data.get(position) != '\n') {
+          position++;
+        }
+      } else if (PlainPnmReader.isWhitespace(b)) {
+        position++;
+      } else {
+        break;
+      }
+    }
+    int start = position;
+    int value = 0;
+    while (position < limit) {
+      byte b = data.get(position);
+      if (b < '0' || b > '9') {
+        break;
+      }
+      if (value > (Integer.MAX_VALUE - 9) / 10) {
+        throw new IllegalArgumentException("Number too large in PNM header");
+      }
+      value = value * 10 + (b - '0');
+      position++;
+    }
+    if (position == start) {
+      throw new IllegalArgumentException("Invalid PNM header");
+    }
+    return value;
+  }
+}
@@ -0,0 +1,189 @@
+package controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import model.MappedSnap;
+import model.Snap;
+
+/**
+ * The PnmWriter class writes PPM images, either as plain text (P3) or as binary (P6). Both go
+ * through a large buffer that is written out to a FileChannel whenever it fills up. Plain
+ * samples are formatted digit by digit straight into the buffer, so no Strings are built, and
+ * binary rows are packed into it whole.
+ */
+class PnmWriter {
+
+  // The size of the buffer the file is written through.
+  private static final int BUFFER_SIZE = 1 << 16;
+  // The most bytes a formatted sample can take: a sign, ten digits and a line break.
+  private static final int MAX_SAMPLE_LENGTH = 12;
+
+  /**
+   * Writes an image as a plain (P3) PPM file, one sample per line.
+   *
+   * @param pixels   the pixel data of the image.
+   * @param filename the name of the file to write.
+   * @param height   the height of the image.
+   * @param width    the width of the image.
+   * @throws IOException if an error occurs while writing the file.
+   */
+  static void writePlain(int[][][] pixels, String filename, int height, int width)
+          throws IOException {
+    try (FileChannel channel = open(filename)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      buffer.put(header("P3", width, height));
+      for (int i = 0; i < height; i++) {
+        int[][] row = pixels[i];
+        for (int j = 0; j < width; j++) {
+          if (buffer.remaining() < 3 * MAX_SAMPLE_LENGTH) {
+            drain(channel, buffer);
+          }
+          int[] pixel = row[j];
+          putSample(buffer, pixel[0]); // Red
+          putSample(buffer, pixel[1]); // Green
+          putSample(buffer, pixel[2]); // Blue
+        }
+      }
+      drain(channel, buffer);
+    }
+  }
+
+  /**
+   * Writes an image as a binary (P6) PPM file, one byte per sample. The pixels of a MappedSnap
+   * are written straight from its buffer.
+   *
+   * @param snap     the image to write.
+   * @param filename the name of the file to write.
+   * @throws IOException if an error occurs while writing the file.
+   */
+  static void writeBinary(Snap snap, String filename) throws IOException {
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+    try (FileChannel channel = open(filename)) {
+      writeBinaryHeader(channel, width, height);
+      if (snap instanceof MappedSnap) {
+        ByteBuffer packed = ((MappedSnap) snap).getPixels();
+        while (packed.hasRemaining()) {
+          channel.write(packed);
+        }
+        return;
+      }
+      writeBinaryRows(channel, snap.getSnap(), 0, height);
+    }
+  }
+
+  /**
+   * Writes the header of a binary (P6) PPM file.
+   *
+   * @param channel the channel to write to, at the start of the file.
+   * @param width   the width of the image.
+   * @param height  the height of the image.
+   * @throws IOException if an error occurs while writing.
+   */
+  static void writeBinaryHeader(FileChannel channel, int width, int height) throws IOException {
+    ByteBuffer header = ByteBuffer.wrap(header("P6", width, height));
+    while (header.hasRemaining()) {
+      channel.write(header);
+    }
+  }
+
+  /**
+   * Writes a range of rows of binary (P6) pixel data, one byte per sample, after whatever has
+   * been written to the channel so far.
+   *
+   * @param channel the channel to write to.
+   * @param pixels  the pixel data holding the rows.
+   * @param fromRow the first row to write.
+   * @param toRow   the row after the last one to write.
+   * @throws IOException if an error occurs while writing.
+   */
+  static void writeBinaryRows(FileChannel channel, int[][][] pixels, int fromRow, int toRow)
+          throws IOException {
+    int rowLength = pixels.length == 0 ? 0 : pixels[0].length * 3;
+    ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, rowLength));
+    byte[] data = buffer.array();
+    for (int i = fromRow; i < toRow; i++) {
+      if (buffer.remaining() < rowLength) {
+        drain(channel, buffer);
+      }
+      int index = buffer.position();
+      for (int[] pixel : pixels[i]) {
+        data[index++] = (byte) pixel[0];
+        data[index++] = (byte) pixel[1];
+        data[index++] = (byte) pixel[2];
+      }
+      buffer.position(index);
+    }
+    drain(channel, buffer);
+  }
+
+  /**
+   * Opens a file for writing, replacing anything already in it.
+   *
+   * @param filename the name of the file.
+   * @return the channel to write the file through.
+   * @throws IOException if the file cannot be opened.
+   */
+  static FileChannel open(String filename) throws IOException {
+    return FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Builds the header of a PPM file with a maximum value of 255.
+   *
+   * @param magicNumber the magic number, "P3" or "P6".
+   * @param width       the width of the image.
+   * @param height      the height of the image.
+   * @return the bytes of the header.
+   */
+  private static byte[] header(String magicNumber, int width, int height) {
+    return (magicNumber + "\n" + width + " " + height + "\n255\n")
+            .getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Writes out everything in the buffer and empties it.
+   *
+   * @param channel the channel to write to.
+   * @param buffer  the buffer, in write mode.
+   * @throws IOException if an error occurs while writing.
+   */
+  private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Formats a sample in decimal followed by a line break, writing the digits straight into the
+   * buffer from the last to the first.
+   *
+   * @param buffer the buffer, with at least MAX_SAMPLE_LENGTH bytes remaining.
+   * @param value  the sample.
+   */
+  private static void putSample(ByteBuffer buffer, int value) {
+    if (value < 0) {
+      buffer.put((byte) '-');
+    }
+    long magnitude = Math.abs((long) value);
+    int digits = 1;
+    for (long power = 10; power <= magnitude; power *= 10) {
+      digits++;
+    }
+    int start = buffer.position();
+    for (int index = start + digits - 1; index >= start; index--) {
+      buffer.put(index, (byte) ('0' + magnitude % 10));
+      magnitude /= 10;
+    }
+    buffer.position(start + digits);
+    buffer.put((byte) '\n');
+  }
+}
@@ -7,14 +7,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.WeakHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import model.Snap;
-import model.SnapImpl;
 import model.SnapModel;
+import model.mask.Mask;
+import model.mask.MaskSnap;
+import model.mask.SpanMask;
 
-import static controller.SnapUtil.readSnap;
+import static controller.SnapUtil.loadSnap;
 import static controller.SnapUtil.writeSnap;
 
 /**
@@ -24,10 +27,21 @@ import static controller.SnapUtil.writeSnap;
  */
 public class SnapControllerImpl implements SnapController {
 
+  // The percentage of pixels at each end of a channel that auto-levels ignores.
+  private static final double AUTO_LEVELS_CLIP = 0.5;
+
   public final Map<String, Runnable> executables;
-  public final Map<String, int[][][]> modelMap;
+  public final Map<String, Snap> modelMap;
+  // Masks already built from mask images, keyed by the identity of the stored image.
+  private final Map<Snap, Mask> maskCache;
   private final Readable input;
   private final SnapModel model;
+  // Whether upcoming loads are decoded in the background.
+  private final boolean prefetch;
+  // The prefetcher of the script being run, if prefetching is on.
+  private LoadPrefetcher prefetcher;
+  // The index of the command being run in the script.
+  private int line;
   public String[] commands;
   public int counter;
   private String lastOutputImage;
@@ -40,11 +54,27 @@ public class SnapControllerImpl implements SnapController {
    * @param model the image processing model to perform operations on
    */
   public SnapControllerImpl(Readable input, SnapModel model) {
+    this(input, model, false);
+  }
+
+  /**
+   * Constructs a new {@code SnapControllerImpl} with the provided input and model, optionally
+   * prefetching the images of load commands. With prefetching on, the whole input is read as a
+   * script before it runs, and upcoming loads are decoded in the background while the commands
+   * before them run, so it should only be used for script files.
+   *
+   * @param input    the input source (can be a script or user input)
+   * @param model    the image processing model to perform operations on
+   * @param prefetch whether to read the input as a script and prefetch its loads
+   */
+  public SnapControllerImpl(Readable input, SnapModel model, boolean prefetch) {
     this.input = input;
     this.model = model;
+    this.prefetch = prefetch;
     this.commands = new String[100];
     this.executables = new HashMap<>();
     this.modelMap = new HashMap<>();
+    this.maskCache = new WeakHashMap<>();
 
     // Register commands
     executables.put("load", new Load());
@@ -53,6 +83,8 @@ public class SnapControllerImpl implements SnapController {
     executables.put("brighten", new Brighten());
     executables.put("vertical-flip", new VerticalFlip());
     executables.put("horizontal-flip", new HorizontalFlip());
+    executables.put("rotate", new Rotate());
+    executables.put("transpose", new Transpose());
     executables.put("value-component", new ValueComponent());
     executables.put("rgb-split", new RgbSplit());
     executables.put("rgb-combine", new RgbCombine());
@@ -64,12 +96,16 @@ public class SnapControllerImpl implements SnapController {
     executables.put("blue-component", new BlueComponent());
     executables.put("luma-component", new LumaComponent());
     executables.put("intensity-component", new IntensityComponent());
+    executables.put("components", new Components());
     executables.put("compress", new CompressComponent());
     executables.put("color-correct", new ColorCorrectionComponent());
     executables.put("histogram", new HistogramComponent());
     executables.put("level-adjust", new LevelAdjustComponent());
+    executables.put("auto-levels", new AutoLevels());
+    executables.put("equalize", new Equalize());
     executables.put("downsize", new DownsizeComponent());
     executables.put("maskimage", new CreateMask());
+    executables.put("stream", new Stream());
     executables.put("exit", new Exit());
   }
 
@@ -83,38 +119,112 @@ public class SnapControllerImpl implements SnapController {
   public void start() throws IOException {
     Scanner scan = new Scanner(input);
 
-    while (scan.hasNextLine()) {
-      String line = scan.nextLine().trim();
-
-      if (line.startsWith("#") || line.isEmpty()) {
-        continue;
+    if (!prefetch) {
+      while (scan.hasNextLine()) {
+        String[] tokens = parseLine(scan.nextLine());
+        if (tokens != null) {
+          execute(tokens);
+        }
       }
+      return;
+    }
 
-      // Parse input line, respecting quotes
-      List<String> tokens = new ArrayList<>();
-      Matcher matcher = Pattern.compile("\"([^\"]*)\"|(\\S+)").matcher(line);
-      while (matcher.find()) {
-        if (matcher.group(1) != null) {
-          tokens.add(matcher.group(1)); // Quoted argument
-        } else {
-          tokens.add(matcher.group(2)); // Non-quoted argument
-        }
+    // Read the whole script first so that the loads in it can be looked ahead to
+    List<String[]> script = new ArrayList<>();
+    while (scan.hasNextLine()) {
+      String[] tokens = parseLine(scan.nextLine());
+      if (tokens != null) {
+        script.add(tokens);
       }
+    }
+    try (LoadPrefetcher scriptPrefetcher = new LoadPrefetcher(script)) {
+      prefetcher = scriptPrefetcher;
+      for (line = 0; line < script.size(); line++) {
+        prefetcher.advance(line);
+        execute(script.get(line));
+      }
+    } finally {
+      prefetcher = null;
+    }
+  }
 
-      commands = tokens.toArray(new String[0]);
-      System.out.println("Parsed commands: " + Arrays.toString(commands));
+  /**
+   * Splits a line of input into the words of a command, keeping quoted arguments whole.
+   *
+   * @param rawLine the line of input.
+   * @return the words of the command, or null if the line is blank or a comment.
+   */
+  private String[] parseLine(String rawLine) {
+    String trimmed = rawLine.trim();
+    if (trimmed.startsWith("#") || trimmed.isEmpty()) {
+      return null;
+    }
 
-      if (executables.containsKey(commands[0])) {
-        System.out.println("Executing command: " + Arrays.toString(commands));
-        this.executables.get(commands[0]).run();
+    // Parse input line, respecting quotes
+    List<String> tokens = new ArrayList<>();
+    Matcher matcher = Pattern.compile("\"([^\"]*)\"|(\\S+)").matcher(trimmed);
+    while (matcher.find()) {
+      if (matcher.group(1) != null) {
+        tokens.add(matcher.group(1)); // Quoted argument
       } else {
-        System.err.println("Unknown command: " + commands[0]);
-        System.err.println("Please check the command syntax or refer to the help documentation.");
+        tokens.add(matcher.group(2)); // Non-quoted argument
       }
     }
+    return tokens.toArray(new String[0]);
+  }
+
+  /**
+   * Runs a single command.
+   *
+   * @param tokens the words of the command.
+   */
+  private void execute(String[] tokens) {
+    commands = tokens;
+    counter = tokens.length;
+    System.out.println("Parsed commands: " + Arrays.toString(commands));
+
+    if (executables.containsKey(commands[0])) {
+      System.out.println("Executing command: " + Arrays.toString(commands));
+      this.executables.get(commands[0]).run();
+    } else {
+      System.err.println("Unknown command: " + commands[0]);
+      System.err.println("Please check the command syntax or refer to the help documentation.");
+    }
   }
 
 
+  /**
+   * Gets the mask described by the mask image stored under the given name. An image made by
+   * the mask command already holds its mask. Any other mask image is converted into a
+   * run-length SpanMask the first time it is used, and later commands reuse it along with its
+   * runs; if the image is plain black and white, it is also replaced by the image of that
+   * mask, so its pixels are not kept.
+   *
+   * @param maskName the name the mask image is stored under.
+   * @return the mask, or null if no image is stored under the name.
+   */
+  private Mask getMask(String maskName) {
+    Snap maskImage = modelMap.get(maskName);
+    if (maskImage == null) {
+      return null;
+    }
+    if (maskImage instanceof MaskSnap) {
+      return ((MaskSnap) maskImage).getMask();
+    }
+    Mask mask = maskCache.get(maskImage);
+    if (mask != null) {
+      return mask;
+    }
+    mask = new SpanMask(maskImage.getSnap());
+    if (MaskSnap.isImageOf(maskImage, mask)) {
+      Snap compact = new MaskSnap(mask);
+      modelMap.replaceAll((name, image) -> image == maskImage ? compact : image);
+    } else {
+      maskCache.put(maskImage, mask);
+    }
+    return mask;
+  }
+
   /**
    * Command class for loading an image into the model.
    */
@@ -135,8 +245,11 @@ public class SnapControllerImpl implements SnapController {
           System.out.println("Error: Unable to determine file extension.");
         }
 
-        int[][][] image = readSnap(inputFileName);
-        model.loadSnap(new SnapImpl(image));
+        Snap image = prefetcher == null ? null : prefetcher.take(line, inputFileName);
+        if (image == null) {
+          image = loadSnap(inputFileName);
+        }
+        model.loadSnap(image);
         modelMap.put(imageName, image);
         lastOutputImage = commands[2];
       } catch (IOException e) {
@@ -155,15 +268,19 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid Command");
         return;
       }
-      int[][][] snapToSave = modelMap.get(commands[2]);
+      Snap snapToSave = modelMap.get(commands[2]);
       if (snapToSave != null) {
-        model.loadSnap(new SnapImpl(snapToSave));
+        model.loadSnap(snapToSave);
       } else {
         System.out.println("Snap not found for key: " + commands[2]);
         return;
       }
+      if (counter == 4 && !commands[3].equals("binary")) {
+        System.out.println("Invalid Command");
+        return;
+      }
       try {
-        writeSnap(snapToSave, commands[1], model.getSnapHeight(), model.getSnapWidth());
+        writeSnap(snapToSave, commands[1], counter == 4);
         lastOutputImage = commands[2];
       } catch (IOException e) {
         e.printStackTrace();
@@ -183,10 +300,10 @@ public class SnapControllerImpl implements SnapController {
       }
 
       int value = Integer.parseInt(commands[1]);
-      int[][][] snap = modelMap.get(commands[2]);
+      Snap snap = modelMap.get(commands[2]);
 
       if (snap != null) {
-        model.loadSnap(new SnapImpl(snap));
+        model.loadSnap(snap);
       } else {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
@@ -194,7 +311,7 @@ public class SnapControllerImpl implements SnapController {
 
       model.brightenessAdjustment(value);
       lastOutputImage = commands[3];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -211,11 +328,11 @@ public class SnapControllerImpl implements SnapController {
       }
 
 
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
 
       // If the snap is found, load it using the SnapImpl constructor
       if (snap != null) {
-        model.loadSnap(new SnapImpl(snap));
+        model.loadSnap(snap);
       } else {
         // If the snap is not found, throw an error and return early
         System.out.println("Snap not found for key: " + commands[1]);
@@ -224,18 +341,18 @@ public class SnapControllerImpl implements SnapController {
 
 
       // Default mask is null (no mask)
-      int[][][] mask = null;
+      Mask mask = null;
 
       // Handle the 'blur source-image mask-image dest-image' case
       if (counter == 4) {
-        mask = modelMap.get(commands[2]);
+        mask = getMask(commands[2]);
         if (mask == null) {
           System.out.println("Mask image not found");
           return;
         }
-        model.blur(new SnapImpl(mask));
+        model.blur(mask);
         lastOutputImage = commands[3];
-        modelMap.put(lastOutputImage, model.getSnap());
+        modelMap.put(lastOutputImage, model.getCurrentSnap());
       }
       // Handle the 'blur source-image dest-image split 70' case
       else if (counter == 5 && commands[3].equals("split")) {
@@ -246,29 +363,25 @@ public class SnapControllerImpl implements SnapController {
             return;
           }
 
-          int snapHeight = model.getSnapHeight();
-          int snapWidth = model.getSnapWidth();
-          model.blur(new SnapImpl(new int[snapHeight][snapWidth][3]), percentage);
+          model.blur(null, percentage);
 
           lastOutputImage = commands[commands.length - 3];
-          modelMap.put(lastOutputImage, model.getSnap());
+          modelMap.put(lastOutputImage, model.getCurrentSnap());
         } catch (NumberFormatException e) {
           System.out.println("Invalid Command");
         }
       }
       // Handle the 'blur source-image dest-image' case without a mask
       else if (counter == 3) {
-        int snapHeight = model.getSnapHeight();
-        int snapWidth = model.getSnapWidth();
-        model.blur(new SnapImpl(new int[snapHeight][snapWidth][3]));
+        model.blur(null);
         lastOutputImage = commands[commands.length - 1]; // Use the correct destination image name
-        modelMap.put(lastOutputImage, model.getSnap());
+        modelMap.put(lastOutputImage, model.getCurrentSnap());
       }
       // Handle the 'blur source-image mask-image dest-image' case with a mask
       else if (counter == 4 && mask != null) {
-        model.blur(new SnapImpl(mask));
+        model.blur(mask);
         lastOutputImage = commands[commands.length - 1];
-        modelMap.put(lastOutputImage, model.getSnap());
+        modelMap.put(lastOutputImage, model.getCurrentSnap());
       } else {
         System.out.println("Invalid Command");
       }
@@ -289,27 +402,27 @@ public class SnapControllerImpl implements SnapController {
       }
 
       // Attempt to load the snap from the modelMap
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
 
       // Default mask is null (no mask)
-      int[][][] mask = null;
+      Mask mask = null;
 
       // Handle the 'sepia source-image mask-image dest-image' case
       if (counter == 4) {
-        mask = modelMap.get(commands[2]);
+        mask = getMask(commands[2]);
         if (mask == null) {
           System.out.println("Mask Image not found");
           return;
         }
         // Apply sepia with the mask
-        model.toSepia(new SnapImpl(mask));
+        model.toSepia(mask);
         lastOutputImage = commands[3]; // Set the output image
       }
       // Handle the 'sepia source-image dest-image split 70' case
@@ -321,10 +434,8 @@ public class SnapControllerImpl implements SnapController {
             return;
           }
 
-          // Apply sepia with the mask (or default image dimensions)
-          int snapHeight = model.getSnapHeight();
-          int snapWidth = model.getSnapWidth();
-          model.toSepia(new SnapImpl(new int[snapHeight][snapWidth][3]), percentage);
+          // Apply sepia to the whole image up to the split
+          model.toSepia(null, percentage);
           lastOutputImage = commands[commands.length - 3]; // Correct destination for split case
         } catch (NumberFormatException e) {
           System.out.println("Invalid Command. split percentage must be a valid integer");
@@ -333,10 +444,7 @@ public class SnapControllerImpl implements SnapController {
       }
       // Handle the 'sepia source-image dest-image' case without a mask
       else if (counter == 3) {
-        int snapHeight = model.getSnapHeight();
-        int snapWidth = model.getSnapWidth();
-
-        model.toSepia(new SnapImpl(new int[snapHeight][snapWidth][3]));
+        model.toSepia(null);
         lastOutputImage = commands[commands.length - 1]; // Set the output image
       } else {
         System.out.println("Invalid Command");
@@ -344,7 +452,7 @@ public class SnapControllerImpl implements SnapController {
       }
 
       // Store the result in modelMap
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -362,28 +470,25 @@ public class SnapControllerImpl implements SnapController {
       }
 
       // Attempt to load the source snap from the modelMap
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("Error: source image not found for key: " + commands[1]);
         return;
       }
 
       // Load the source image into the model
-      model.loadSnap(new SnapImpl(sourceSnap));
+      model.loadSnap(sourceSnap);
 
-      Snap mask = null;
+      Mask mask = null;
 
       // Case: 'sharpen source-image mask-image dest-image'
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("Error: mask image not found for key: " + commands[2]);
           return;
         }
 
-        // Load the mask into a Snap object
-        mask = new SnapImpl(maskSnap);
-
         // Apply sharpen transformation with the mask
         model.sharpen(mask);
         lastOutputImage = commands[3]; // Set the destination image
@@ -395,9 +500,7 @@ public class SnapControllerImpl implements SnapController {
             return;
           }
 
-          int snapHeight = model.getSnapHeight();
-          int snapWidth = model.getSnapWidth();
-          model.sharpen(new SnapImpl(new int[snapHeight][snapWidth][3]), percentage);
+          model.sharpen(null, percentage);
           lastOutputImage = commands[commands.length - 3];
         } catch (NumberFormatException e) {
           System.out.println("Error: split percentage must be a valid integer");
@@ -412,7 +515,7 @@ public class SnapControllerImpl implements SnapController {
       }
 
       // Store the result in modelMap
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -427,17 +530,17 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
       model.verticalFlip();
       lastOutputImage = commands[2];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -451,17 +554,74 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
       model.horizontalFlip();
       lastOutputImage = commands[2];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
+    }
+  }
+
+  /**
+   * Command class for rotating an image by a multiple of 90 degrees.
+   */
+  private class Rotate implements Runnable {
+    @Override
+    public void run() {
+      if (counter < 4) {
+        System.out.println("Invalid command");
+        return;
+      }
+      Snap snap = modelMap.get(commands[2]);
+      if (snap == null) {
+        System.out.println("Snap not found for key: " + commands[2]);
+        return;
+      }
+
+      // Load the snap into the model
+      model.loadSnap(snap);
+      try {
+        int degrees = Integer.parseInt(commands[1]);
+        model.rotate(degrees);
+      } catch (NumberFormatException e) {
+        System.out.println("Error: Rotation must be a valid integer.");
+        return;
+      } catch (IllegalArgumentException e) {
+        System.out.println("Error: Rotation must be a multiple of 90 degrees.");
+        return;
+      }
+      lastOutputImage = commands[3];
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
+    }
+  }
+
+  /**
+   * Command class for transposing an image across its main diagonal.
+   */
+  private class Transpose implements Runnable {
+    @Override
+    public void run() {
+      if (counter < 3) {
+        System.out.println("Invalid command");
+        return;
+      }
+      Snap snap = modelMap.get(commands[1]);
+      if (snap == null) {
+        System.out.println("Snap not found for key: " + commands[1]);
+        return;
+      }
+
+      // Load the snap into the model
+      model.loadSnap(snap);
+      model.transpose();
+      lastOutputImage = commands[2];
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -477,27 +637,27 @@ public class SnapControllerImpl implements SnapController {
       }
 
       // Attempt to load the snap from the modelMap
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
 
       // Default mask is null (no mask)
-      int[][][] mask = null;
+      Mask mask = null;
 
       // Handle the 'sepia source-image mask-image dest-image' case
       if (counter == 4) {
-        mask = modelMap.get(commands[2]);
+        mask = getMask(commands[2]);
         if (mask == null) {
           System.out.println("Mask Image not found");
           return;
         }
         // Apply sepia with the mask
-        model.toGreyscale(new SnapImpl(mask));
+        model.toGreyscale(mask);
         lastOutputImage = commands[3]; // Set the output image
       }
       // Handle the 'sepia source-image dest-image split 70' case
@@ -509,19 +669,14 @@ public class SnapControllerImpl implements SnapController {
             return;
           }
 
-          int snapHeight = model.getSnapHeight();
-          int snapWidth = model.getSnapWidth();
-          model.toGreyscale(new SnapImpl(new int[snapHeight][snapWidth][3]), percentage);
+          model.toGreyscale(null, percentage);
           lastOutputImage = commands[commands.length - 3];
         } catch (NumberFormatException e) {
           System.out.println("Invalid command. split percentage must be a valid integer");
           return;
         }
       } else if (counter == 3) {
-        int snapHeight = model.getSnapHeight();
-        int snapWidth = model.getSnapWidth();
-
-        model.toGreyscale(new SnapImpl(new int[snapHeight][snapWidth][3]));
+        model.toGreyscale(null);
         lastOutputImage = commands[commands.length - 1];
       } else {
         System.out.println("Invalid command");
@@ -529,7 +684,7 @@ public class SnapControllerImpl implements SnapController {
       }
 
       // Store the result in modelMap
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -544,19 +699,19 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
       Snap[] rgbSplitImages = model.applyRGBSplit();
 
       for (int i = 0; i < rgbSplitImages.length; i++) {
         Snap rgbSplitImage = rgbSplitImages[i];
-        modelMap.put(commands[i + 2], rgbSplitImage.getSnap());
+        modelMap.put(commands[i + 2], rgbSplitImage);
       }
 
       lastOutputImage = commands[1];
@@ -577,9 +732,9 @@ public class SnapControllerImpl implements SnapController {
       String redSplitName = commands[2];
       String greenSplitName = commands[3];
       String blueSplitName = commands[4];
-      int[][][] redSnap = modelMap.get(redSplitName);
-      int[][][] greenSnap = modelMap.get(greenSplitName);
-      int[][][] blueSnap = modelMap.get(blueSplitName);
+      Snap redSnap = modelMap.get(redSplitName);
+      Snap greenSnap = modelMap.get(greenSplitName);
+      Snap blueSnap = modelMap.get(blueSplitName);
       if (redSnap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
@@ -595,11 +750,9 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      model.applyRGBCombine(new SnapImpl(redSnap),
-              new SnapImpl(greenSnap),
-              new SnapImpl(blueSnap));
+      model.applyRGBCombine(redSnap, greenSnap, blueSnap);
       lastOutputImage = commands[1];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -614,35 +767,79 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("Source image not found");
         return;
       }
-      model.loadSnap(new SnapImpl(sourceSnap));
+      model.loadSnap(sourceSnap);
 
 
-      Snap mask = null;
+      Mask mask = null;
 
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("mask image ot found");
           return;
         }
-        mask = new SnapImpl(maskSnap);
       }
 
       // Apply the red-component operation with or without a mask
       model.redComponent(mask);
 
       lastOutputImage = commands[counter - 1];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
 
 
       model.redComponent(mask);
       lastOutputImage = commands[2];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
+    }
+  }
+
+  /**
+   * Command class for retrieving several components of an image in one pass. The components are
+   * given as a comma separated list, and each one is stored as dest-prefix-component.
+   */
+  private class Components implements Runnable {
+    @Override
+    public void run() {
+      if (counter < 4) {
+        System.out.println("Invalid command");
+        return;
+      }
+
+      Snap sourceSnap = modelMap.get(commands[2]);
+      if (sourceSnap == null) {
+        System.out.println("Source image not found");
+        return;
+      }
+      model.loadSnap(sourceSnap);
+
+      Mask mask = null;
+      if (counter == 5) {
+        mask = getMask(commands[3]);
+        if (mask == null) {
+          System.out.println("Mask image not found");
+          return;
+        }
+      }
+
+      String[] components = commands[1].split(",");
+      Snap[] componentSnaps;
+      try {
+        componentSnaps = model.extractComponents(mask, components);
+      } catch (IllegalArgumentException e) {
+        System.out.println("Error: " + e.getMessage());
+        return;
+      }
+
+      String destPrefix = commands[counter - 1];
+      for (int i = 0; i < components.length; i++) {
+        lastOutputImage = destPrefix + "-" + components[i].toLowerCase();
+        modelMap.put(lastOutputImage, componentSnaps[i]);
+      }
     }
   }
 
@@ -656,26 +853,25 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("source image not found");
         return;
       }
-      model.loadSnap(new SnapImpl(sourceSnap));
-      Snap mask = null;
+      model.loadSnap(sourceSnap);
+      Mask mask = null;
 
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("mask image not found");
           return;
         }
-        mask = new SnapImpl(maskSnap);
       }
 
       model.greenComponent(mask);
       lastOutputImage = commands[counter - 1];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -690,25 +886,24 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("source image not found");
         return;
       }
-      model.loadSnap(new SnapImpl(sourceSnap));
+      model.loadSnap(sourceSnap);
 
-      Snap mask = null;
+      Mask mask = null;
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("mask image not found");
           return;
         }
-        mask = new SnapImpl(maskSnap);
       }
       model.blueComponent(mask);
       lastOutputImage = commands[counter - 1];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -722,25 +917,24 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("Source image not found");
         return;
       }
-      model.loadSnap(new SnapImpl(sourceSnap));
-      Snap mask = null;
+      model.loadSnap(sourceSnap);
+      Mask mask = null;
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("mask image not found");
           return;
         }
-        mask = new SnapImpl(maskSnap);
       }
       model.lumaComponent(mask);
       lastOutputImage = commands[counter - 1];
 
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -754,24 +948,23 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("source image not found");
         return;
       }
-      model.loadSnap(new SnapImpl(sourceSnap));
-      Snap mask = null;
+      model.loadSnap(sourceSnap);
+      Mask mask = null;
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("mask image not found");
           return;
         }
-        mask = new SnapImpl(maskSnap);
       }
       model.intensityComponent(mask);
       lastOutputImage = commands[counter - 1];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -786,25 +979,24 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      int[][][] sourceSnap = modelMap.get(commands[1]);
+      Snap sourceSnap = modelMap.get(commands[1]);
       if (sourceSnap == null) {
         System.out.println("source image not found");
         return;
       }
-      model.loadSnap(new SnapImpl(sourceSnap));
-      Snap mask = null;
+      model.loadSnap(sourceSnap);
+      Mask mask = null;
 
       if (counter == 4) {
-        int[][][] maskSnap = modelMap.get(commands[2]);
-        if (maskSnap == null) {
+        mask = getMask(commands[2]);
+        if (mask == null) {
           System.out.println("mask image not found");
           return;
         }
-        mask = new SnapImpl(maskSnap);
       }
       model.valueComponent(mask);
       lastOutputImage = commands[counter - 1];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -818,15 +1010,21 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
+      // The sweep form starts with an image name where the other forms have the percentage, so
+      // 'compress 50 image sweep integer' is still an integer compression into 'sweep'
+      if (counter == 5 && commands[3].equals("sweep") && !isWholeNumber(commands[1])) {
+        runSweep();
+        return;
+      }
 
-      int[][][] snap = modelMap.get(commands[2]);
+      Snap snap = modelMap.get(commands[2]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[2]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
 
       try {
         int percentage = Integer.parseInt(commands[1]);
@@ -836,15 +1034,72 @@ public class SnapControllerImpl implements SnapController {
           return;
         }
 
-        model.compressionComponent(percentage);
+        // 'compress percentage source-image dest-image integer' uses the exact integer transform
+        if (counter == 5 && commands[4].equals("integer")) {
+          model.integerCompressionComponent(percentage);
+        } else {
+          model.compressionComponent(percentage);
+        }
 
         lastOutputImage = commands[3];
-        modelMap.put(lastOutputImage, model.getSnap());
+        modelMap.put(lastOutputImage, model.getCurrentSnap());
         System.out.println("Image compressed. Use the save command to write it to a file.");
       } catch (NumberFormatException e) {
         System.out.println("Invalid compression percentage");
       }
     }
+
+    /**
+     * Handles 'compress source-image dest-prefix sweep p1,p2,...', storing the image compressed
+     * at each percentage as dest-prefix-percentage.
+     */
+    private void runSweep() {
+      Snap snap = modelMap.get(commands[1]);
+      if (snap == null) {
+        System.out.println("Snap not found for key: " + commands[1]);
+        return;
+      }
+
+      String[] values = commands[4].split(",");
+      double[] percentages = new double[values.length];
+      try {
+        for (int i = 0; i < values.length; i++) {
+          int percentage = Integer.parseInt(values[i]);
+          if (percentage < 0 || percentage > 100) {
+            System.out.println("Error: Compression percentage "
+                    + "must be between 0 and 100.");
+            return;
+          }
+          percentages[i] = percentage;
+        }
+      } catch (NumberFormatException e) {
+        System.out.println("Invalid compression percentage");
+        return;
+      }
+
+      model.loadSnap(snap);
+      Snap[] compressed = model.compressionSweep(percentages);
+      for (int i = 0; i < values.length; i++) {
+        lastOutputImage = commands[2] + "-" + values[i];
+        modelMap.put(lastOutputImage, compressed[i]);
+      }
+      System.out.println("Images compressed. Use the save command to write them to files.");
+    }
+
+    /**
+     * Checks whether a token is a whole number, as the percentage of a compress command is.
+     *
+     * @param token the token to check.
+     * @return true if the token parses as an int.
+     */
+    private boolean isWholeNumber(String token) {
+      try {
+        Integer.parseInt(token);
+        return true;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
   }
 
   /**
@@ -858,14 +1113,14 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[2]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
 
       if (counter == 5 && commands[3].equals("split")) {
         try {
@@ -886,7 +1141,7 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
       lastOutputImage = commands[2];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -900,18 +1155,37 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
-      model.histogramComponent();
+      model.loadSnap(snap);
+      // 'histogram source-image dest-image width height' draws it at the given size
+      if (counter == 5) {
+        try {
+          int width = Integer.parseInt(commands[3]);
+          int height = Integer.parseInt(commands[4]);
+          if (width <= 0 || height <= 0) {
+            System.out.println("Error: Histogram size must be positive.");
+            return;
+          }
+          model.histogramComponent(width, height);
+        } catch (NumberFormatException e) {
+          System.out.println("Invalid histogram size");
+          return;
+        } catch (IllegalArgumentException e) {
+          System.out.println("Error: " + e.getMessage());
+          return;
+        }
+      } else {
+        model.histogramComponent();
+      }
       System.out.println(commands[2]);
       lastOutputImage = commands[2];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
     }
   }
 
@@ -925,14 +1199,14 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command");
         return;
       }
-      int[][][] snap = modelMap.get(commands[4]);
+      Snap snap = modelMap.get(commands[4]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[4]);
         return;
       }
 
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
       int black = Integer.parseInt(commands[1]);
       int middle = Integer.parseInt(commands[2]);
       int white = Integer.parseInt(commands[3]);
@@ -964,7 +1238,85 @@ public class SnapControllerImpl implements SnapController {
       }
 
       lastOutputImage = commands[5];
-      modelMap.put(lastOutputImage, model.getSnap());
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
+    }
+  }
+
+  /**
+   * Base class of the commands that remap each channel through a table derived from the
+   * histogram of the image. They all take the forms 'command source-image dest-image',
+   * 'command source-image mask-image dest-image' and 'command source-image dest-image split p'.
+   */
+  private abstract class HistogramAdjustment implements Runnable {
+    @Override
+    public void run() {
+      if (counter < 3) {
+        System.out.println("Invalid Command");
+        return;
+      }
+      Snap snap = modelMap.get(commands[1]);
+      if (snap == null) {
+        System.out.println("Snap not found for key: " + commands[1]);
+        return;
+      }
+      model.loadSnap(snap);
+
+      if (counter == 3) {
+        adjust(null);
+      } else if (counter == 4) {
+        Mask mask = getMask(commands[2]);
+        if (mask == null) {
+          System.out.println("Mask image not found");
+          return;
+        }
+        adjust(mask);
+      } else if (counter == 5 && commands[3].equals("split")) {
+        try {
+          int percentage = Integer.parseInt(commands[4]);
+          if (percentage < 0 || percentage > 100) {
+            System.out.println("Error: split percentage must be between 0 and 100");
+            return;
+          }
+          adjust(null, percentage);
+        } catch (NumberFormatException e) {
+          System.out.println("Error: split percentage must be a valid integer");
+          return;
+        }
+      } else {
+        System.out.println("Invalid Command");
+        return;
+      }
+      lastOutputImage = counter == 5 ? commands[2] : commands[counter - 1];
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
+    }
+
+    /**
+     * Applies the adjustment to the image loaded in the model.
+     *
+     * @param mask       the mask selecting the pixels to change, or null for every pixel.
+     * @param percentage an optional percentage of the width to change.
+     */
+    abstract void adjust(Mask mask, int... percentage);
+  }
+
+  /**
+   * Command class for stretching the levels of each channel of the current Snap, ignoring
+   * AUTO_LEVELS_CLIP percent of the pixels at either end.
+   */
+  private class AutoLevels extends HistogramAdjustment {
+    @Override
+    void adjust(Mask mask, int... percentage) {
+      model.autoLevelsComponent(AUTO_LEVELS_CLIP, mask, percentage);
+    }
+  }
+
+  /**
+   * Command class for equalizing the histogram of each channel of the current Snap.
+   */
+  private class Equalize extends HistogramAdjustment {
+    @Override
+    void adjust(Mask mask, int... percentage) {
+      model.equalizeComponent(mask, percentage);
     }
   }
 
@@ -980,13 +1332,13 @@ public class SnapControllerImpl implements SnapController {
         return;
       }
 
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
       // Load the snap into the model
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
       try {
 
 
@@ -1004,7 +1356,7 @@ public class SnapControllerImpl implements SnapController {
 
         // Update the model map with the downsized image
         lastOutputImage = commands[2];
-        modelMap.put(lastOutputImage, model.getSnap());
+        modelMap.put(lastOutputImage, model.getCurrentSnap());
 
       } catch (NumberFormatException e) {
         System.out.println("Error: Invalid dimensions. Width and height must be integers.");
@@ -1024,13 +1376,13 @@ public class SnapControllerImpl implements SnapController {
         System.out.println("Invalid command.");
         return;
       }
-      int[][][] snap = modelMap.get(commands[1]);
+      Snap snap = modelMap.get(commands[1]);
       if (snap == null) {
         System.out.println("Snap not found for key: " + commands[1]);
         return;
       }
 
-      model.loadSnap(new SnapImpl(snap));
+      model.loadSnap(snap);
       try {
 
         int xStart = Integer.parseInt(commands[3]);
@@ -1045,7 +1397,30 @@ public class SnapControllerImpl implements SnapController {
       }
 
       lastOutputImage = commands[2];
-      modelMap.put(lastOutputImage, model.getSnap());
+      // The model returns a MaskSnap, which holds the rectangle rather than its pixels
+      modelMap.put(lastOutputImage, model.getCurrentSnap());
+    }
+  }
+
+  /**
+   * Command class for running a chain of operations over an image file band by band, reading
+   * it and writing the result without ever holding the whole image in memory.
+   */
+  private class Stream implements Runnable {
+    @Override
+    public void run() {
+      if (counter < 4) {
+        System.out.println("Invalid Command");
+        return;
+      }
+      try {
+        new SnapStreamer(model, Arrays.copyOfRange(commands, 3, counter))
+                .stream(commands[1], commands[2]);
+      } catch (IllegalArgumentException e) {
+        System.out.println("Error: " + e.getMessage());
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
     }
   }
 
@@ -0,0 +1,341 @@
+package controller;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import model.MappedSnap;
+import model.Snap;
+import model.SnapModel;
+
+/**
+ * The SnapStreamer class runs a chain of operations over an image file band by band, so that
+ * the whole image is never held in memory. Each band of rows is read from the input file,
+ * loaded into the model, put through every operation in turn, and appended to the output file
+ * before the next band is read.
+ *
+ * <p>Only operations that work on each pixel, or on each pixel and its neighbours, can be
+ * streamed. A neighbourhood filter needs the rows around a band to work out its edge rows, so
+ * every band is read with a halo of extra rows above and below it, as many as all of the
+ * filters in the chain reach, and only the rows of the band itself are written. At the top and
+ * bottom of the image there are no rows to add, just as when the whole image is filtered, so
+ * the output is the same as running the operations on the whole image.
+ *
+ * <p>Binary (P6) PPM files are read by position straight from the file. PNG files are decoded
+ * a row at a time by a single PngRowReader that moves forward through the file across bands, so
+ * each row is decoded only once; the halo rows a band shares with the one before it are kept
+ * from that band rather than decoded again. Other formats cannot be decoded a row at a time and
+ * are rejected. The output is always written as a binary PPM file.
+ */
+class SnapStreamer {
+
+  // The number of pixels in each band.
+  private static final int BAND_PIXELS = 1 << 16;
+
+  private final SnapModel model;
+  private final List<Consumer<SnapModel>> operations;
+  // The number of rows every band is read with above and below it.
+  private final int halo;
+
+  /**
+   * Constructs a streamer for a chain of operations. Each operation is named as its command
+   * is, followed by its arguments: brighten (int)value, sepia, greyscale, red-component,
+   * green-component, blue-component, luma-component, intensity-component, value-component,
+   * level-adjust (int)black (int)mid (int)white, horizontal-flip, blur and sharpen.
+   *
+   * @param model      the model the operations are run with.
+   * @param operations the names and arguments of the operations, in the order they are run.
+   * @throws IllegalArgumentException if an operation is unknown or its arguments are invalid.
+   */
+  SnapStreamer(SnapModel model, String... operations) throws IllegalArgumentException {
+    this.model = model;
+    this.operations = new ArrayList<>();
+    int reach = 0;
+    int k = 0;
+    while (k < operations.length) {
+      String name = operations[k++];
+      switch (name) {
+        case "brighten":
+          int adjustment = parseArgument(operations, k++, name);
+          this.operations.add(m -> m.brightenessAdjustment(adjustment));
+          break;
+        case "sepia":
+          this.operations.add(m -> m.toSepia(null));
+          break;
+        case "greyscale":
+          this.operations.add(m -> m.toGreyscale(null));
+          break;
+        case "red-component":
+          this.operations.add(m -> m.redComponent(null));
+          break;
+        case "green-component":
+          this.operations.add(m -> m.greenComponent(null));
+          break;
+        case "blue-component":
+          this.operations.add(m -> m.blueComponent(null));
+          break;
+        case "luma-component":
+          this.operations.add(m -> m.lumaComponent(null));
+          break;
+        case "intensity-component":
+          this.operations.add(m -> m.intensityComponent(null));
+          break;
+        case "value-component":
+          this.operations.add(m -> m.valueComponent(null));
+          break;
+        case "level-adjust":
+          int black = parseArgument(operations, k++, name);
+          int mid = parseArgument(operations, k++, name);
+          int white = parseArgument(operations, k++, name);
+          if (black < 0 || white > 255 || !(black < mid && mid < white)) {
+            throw new IllegalArgumentException("Levels must be between 0 and 255 "
+                    + "and in ascending order (black < mid < white).");
+          }
+          this.operations.add(m -> m.levelAdjustment(black, mid, white));
+          break;
+        case "horizontal-flip":
+          this.operations.add(SnapModel::horizontalFlip);
+          break;
+        case "blur":
+          // The 3x3 Gaussian kernel reaches one row each way
+          this.operations.add(m -> m.blur(null));
+          reach += 1;
+          break;
+        case "sharpen":
+          // The 5x5 sharpening kernel reaches two rows each way
+          this.operations.add(m -> m.sharpen(null));
+          reach += 2;
+          break;
+        default:
+          throw new IllegalArgumentException("Operation cannot be streamed: " + name);
+      }
+    }
+    if (this.operations.isEmpty()) {
+      throw new IllegalArgumentException("No operations to stream");
+    }
+    this.halo = reach;
+  }
+
+  /**
+   * Runs the operations over an image file band by band and writes the result as a binary PPM
+   * file.
+   *
+   * @param inputFile  the name of the image file to read, a binary PPM file or a PNG file.
+   * @param outputFile the name of the PPM file to write.
+   * @throws IOException              if an error occurs while reading or writing.
+   * @throws IllegalArgumentException if the input cannot be streamed, or the output is not a
+   *                                  PPM file or is the input file.
+   */
+  void stream(String inputFile, String outputFile) throws IOException {
+    if (!outputFile.toLowerCase().endsWith(".ppm")) {
+      throw new IllegalArgumentException("Streamed images can only be saved as PPM");
+    }
+    if (new File(inputFile).getCanonicalFile().equals(new File(outputFile).getCanonicalFile())) {
+      throw new IllegalArgumentException("Cannot stream an image onto itself");
+    }
+
+    String format = inputFile.toLowerCase();
+    if (!format.endsWith(".ppm") && !format.endsWith(".png")) {
+      throw new IllegalArgumentException("Only binary PPM and PNG files can be streamed");
+    }
+
+    try (BandSource source = format.endsWith(".ppm")
+            ? new PpmSource(inputFile) : new PngSource(inputFile);
+         FileChannel output = PnmWriter.open(outputFile)) {
+      int width = source.getWidth();
+      int height = source.getHeight();
+      int bandRows = Math.max(1, BAND_PIXELS / width);
+      PnmWriter.writeBinaryHeader(output, width, height);
+
+      for (int start = 0; start < height; start += bandRows) {
+        int end = Math.min(height, start + bandRows);
+        int from = Math.max(0, start - halo);
+        int to = Math.min(height, end + halo);
+        model.loadSnap(source.read(from, to));
+        for (Consumer<SnapModel> operation : operations) {
+          operation.accept(model);
+        }
+        PnmWriter.writeBinaryRows(output, model.getSnap(), start - from, end - from);
+      }
+    }
+  }
+
+  /**
+   * Parses an integer argument of an operation.
+   *
+   * @param operations the names and arguments of the operations.
+   * @param index      the index of the argument.
+   * @param name       the name of the operation.
+   * @return the argument.
+   * @throws IllegalArgumentException if the argument is missing or not an integer.
+   */
+  private static int parseArgument(String[] operations, int index, String name)
+          throws IllegalArgumentException {
+    if (index >= operations.length) {
+      throw new IllegalArgumentException("Missing argument for " + name);
+    }
+    try {
+      return Integer.parseInt(operations[index]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid argument for " + name + ": "
+              + operations[index]);
+    }
+  }
+
+  /**
+   * A source of the rows of an image file.
+   */
+  private interface BandSource extends Closeable {
+
+    /**
+     * Gets the width of the image.
+     *
+     * @return the width in pixels.
+     */
+    int getWidth();
+
+    /**
+     * Gets the height of the image.
+     *
+     * @return the height in pixels.
+     */
+    int getHeight();
+
+    /**
+     * Reads a range of rows of the image. Each range must start and end no earlier than the one
+     * before it.
+     *
+     * @param fromRow the first row to read.
+     * @param toRow   the row after the last one to read.
+     * @return the rows as an image of their own.
+     * @throws IOException if an error occurs while reading.
+     */
+    Snap read(int fromRow, int toRow) throws IOException;
+  }
+
+  /**
+   * Reads the rows of a binary PPM file by their position in the file, so files of any size
+   * can be read.
+   */
+  private static class PpmSource implements BandSource {
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final long dataOffset;
+
+    /**
+     * Opens a binary PPM file and reads its header.
+     *
+     * @param filename the name of the P6 file.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    PpmSource(String filename) throws IOException {
+      PnmHeader header = PnmHeader.read(filename);
+      if (header.getFormat() != '6') {
+        throw new IllegalArgumentException("Only binary (P6) PPM files can be streamed");
+      }
+      if (header.getMaxVal() != 255) {
+        throw new IllegalArgumentException("Unsupported max color value: "
+                + header.getMaxVal());
+      }
+      this.width = header.getWidth();
+      this.height = header.getHeight();
+      this.dataOffset = header.getDataOffset();
+      this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+      if (dataOffset + (long) width * height * 3 > channel.size()) {
+        channel.close();
+        throw new IllegalArgumentException("Image data ends early");
+      }
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public Snap read(int fromRow, int toRow) throws IOException {
+      ByteBuffer rows = ByteBuffer.allocate((toRow - fromRow) * width * 3);
+      long position = dataOffset + (long) fromRow * width * 3;
+      while (rows.hasRemaining()) {
+        int read = channel.read(rows, position + rows.position());
+        if (read < 0) {
+          throw new IOException("Unexpected end of PPM file");
+        }
+      }
+      return new MappedSnap(rows, width, toRow - fromRow);
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Reads the rows of a PNG file with a PngRowReader, decoding each row once. The rows of the
+   * last band are kept so that the rows the next band shares with it need not be decoded again.
+   */
+  private static class PngSource implements BandSource {
+
+    private final PngRowReader reader;
+    // The packed rows of the last band read, and the rows it covers.
+    private byte[] band;
+    private int bandFrom;
+    private int bandTo;
+
+    /**
+     * Opens a PNG file and reads its header.
+     *
+     * @param filename the name of the PNG file.
+     * @throws IOException if an error occurs while reading the file.
+     */
+    PngSource(String filename) throws IOException {
+      this.reader = new PngRowReader(filename);
+      this.band = new byte[0];
+    }
+
+    @Override
+    public int getWidth() {
+      return reader.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+      return reader.getHeight();
+    }
+
+    @Override
+    public Snap read(int fromRow, int toRow) throws IOException {
+      int rowLength = reader.getWidth() * 3;
+      byte[] rows = new byte[(toRow - fromRow) * rowLength];
+      int kept = Math.max(0, bandTo - fromRow);
+      System.arraycopy(band, (fromRow - bandFrom) * rowLength, rows, 0, kept * rowLength);
+      for (int i = kept; i < toRow - fromRow; i++) {
+        reader.readRow(rows, i * rowLength);
+      }
+      band = rows;
+      bandFrom = fromRow;
+      bandTo = toRow;
+      return new MappedSnap(ByteBuffer.wrap(rows), reader.getWidth(), toRow - fromRow);
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+}
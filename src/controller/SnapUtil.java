@@ -2,23 +2,47 @@ package controller;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import model.SingleChannelSnap;
+import model.Snap;
+import model.SnapImpl;
 
 /**
- * Reads a Snap image from a file. Supports PNG, JPEG, and PPM formats.
+ * Reads a Snap image from a file. Supports PNG, JPEG, PPM, PGM and SNAPW formats.
  */
 public class SnapUtil {
 
   /**
-   * Reads a Snap image from a file. Supports PNG, JPEG, and PPM formats.
+   * Loads a Snap image from a file. The file is decoded once, and the width and height of the
+   * image are taken from the decoded pixels. Supports PNG, JPEG, PPM, PGM and SNAPW formats.
+   *
+   * @param filename The name of the file to load the image from.
+   * @return The loaded image.
+   * @throws IOException If an error occurs while reading the file.
+   */
+  public static Snap loadSnap(String filename) throws IOException {
+    return new SnapImpl(readSnap(filename));
+  }
+
+  /**
+   * Reads a Snap image from a file. Supports PNG, JPEG, PPM, PGM and SNAPW formats.
    *
    * @param filename The name of the file to read the image from.
    * @return A 3D array representing the image
@@ -30,6 +54,10 @@ public class SnapUtil {
 
     if (fileExtension.equals("ppm")) {
       return readPPM(filename); // Custom method to read PPM files
+    } else if (fileExtension.equals("pgm")) {
+      return readPGM(filename);
+    } else if (fileExtension.equals("snapw")) {
+      return readSnapWavelet(filename);
     } else {
       return readStandardImage(filename);
     }
@@ -45,8 +73,37 @@ public class SnapUtil {
   private static int[][][] readStandardImage(String filename) throws IOException {
     System.out.println("Filename received: " + filename);
     BufferedImage input = ImageIO.read(new File(filename));
+    if (input == null) {
+      throw new IOException("Unsupported image format: " + filename);
+    }
+    return toPixels(input);
+  }
+
+  /**
+   * Copies the pixels of a decoded image into a new array. Common raster types are copied
+   * straight from their data buffer; other color models go through getRGB.
+   *
+   * @param input The decoded image.
+   * @return A 3D array representing the image.
+   */
+  private static int[][][] toPixels(BufferedImage input) {
     int[][][] output = new int[input.getHeight()][input.getWidth()][3];
 
+    switch (input.getType()) {
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+      case BufferedImage.TYPE_BYTE_GRAY:
+        // Grey samples are read as they are; getRGB would convert them from linear grey to sRGB
+        readByteRaster(input.getRaster(), output);
+        return output;
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        readIntRaster(input.getRaster(), output);
+        return output;
+      default:
+        break;
+    }
+
     for (int i = 0; i < input.getHeight(); i++) {
       for (int j = 0; j < input.getWidth(); j++) {
         int color = input.getRGB(j, i);
@@ -61,77 +118,129 @@ public class SnapUtil {
   }
 
   /**
-   * Reads a PPM image from a file.
+   * Copies the samples of an 8-bit interleaved raster straight from its data buffer, without
+   * going through the color model. Bands 0, 1 and 2 are taken as red, green and blue, and a
+   * raster with a single band is copied into all three channels.
    *
-   * @param filename The name of the PPM file to read.
-   * @return A 3D array representing the PPM image.
-   * @throws IOException If an error occurs while reading the file.
+   * @param raster The raster of a 3BYTE_BGR, 4BYTE_ABGR or BYTE_GRAY image.
+   * @param output The array to copy the samples into, one row per image row.
    */
-  private static int[][][] readPPM(String filename) throws IOException {
-    BufferedReader br = new BufferedReader(new FileReader(filename));
-    String magicNumber = br.readLine().trim();
+  private static void readByteRaster(WritableRaster raster, int[][][] output) {
+    ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+    byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+    int scanlineStride = model.getScanlineStride();
+    int pixelStride = model.getPixelStride();
+    int[] bandOffsets = model.getBandOffsets();
+    int red = bandOffsets[0];
+    int green = bandOffsets[Math.min(1, bandOffsets.length - 1)];
+    int blue = bandOffsets[Math.min(2, bandOffsets.length - 1)];
+    int origin = raster.getDataBuffer().getOffset()
+            - raster.getSampleModelTranslateY() * scanlineStride
+            - raster.getSampleModelTranslateX() * pixelStride;
 
-    if (!magicNumber.equals("P3") && !magicNumber.equals("P6")) {
-      br.close();
-      throw new IllegalArgumentException("Invalid PPM format: Only P3 and P6 formats supported");
-    }
-
-    // Skip comments and read dimensions
-    String line = br.readLine().trim();
-    while (line.startsWith("#")) {
-      line = br.readLine().trim();
+    for (int i = 0; i < output.length; i++) {
+      int[][] row = output[i];
+      int index = origin + i * scanlineStride;
+      for (int j = 0; j < row.length; j++) {
+        int[] pixel = row[j];
+        pixel[0] = data[index + red] & 0xFF;
+        pixel[1] = data[index + green] & 0xFF;
+        pixel[2] = data[index + blue] & 0xFF;
+        index += pixelStride;
+      }
     }
+  }
 
-    String[] dimensions = line.split("\\s+");
-    int width = Integer.parseInt(dimensions[0]);
-    int height = Integer.parseInt(dimensions[1]);
-    int maxVal = Integer.parseInt(br.readLine().trim());
+  /**
+   * Copies the pixels of a packed INT_RGB or INT_ARGB raster straight from its data buffer,
+   * without going through the color model. Any alpha is dropped, as getRGB followed by
+   * new Color(int) would drop it.
+   *
+   * @param raster The raster of an INT_RGB or INT_ARGB image.
+   * @param output The array to copy the pixels into, one row per image row.
+   */
+  private static void readIntRaster(WritableRaster raster, int[][][] output) {
+    SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+    int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+    int scanlineStride = model.getScanlineStride();
+    int origin = raster.getDataBuffer().getOffset()
+            - raster.getSampleModelTranslateY() * scanlineStride
+            - raster.getSampleModelTranslateX();
 
-    if (maxVal != 255) {
-      br.close();
-      throw new IllegalArgumentException("Unsupported max color value: " + maxVal);
+    for (int i = 0; i < output.length; i++) {
+      int[][] row = output[i];
+      int index = origin + i * scanlineStride;
+      for (int j = 0; j < row.length; j++) {
+        int color = data[index + j];
+        int[] pixel = row[j];
+        pixel[0] = (color >> 16) & 0xFF;
+        pixel[1] = (color >> 8) & 0xFF;
+        pixel[2] = color & 0xFF;
+      }
     }
+  }
 
-    int[][][] output = new int[height][width][3];
-
+  /**
+   * Reads a PPM image from a file. Plain (P3) files are parsed by PlainPnmReader and binary
+   * (P6) files are copied out in bulk by BinaryPnmReader.
+   *
+   * @param filename The name of the PPM file to read.
+   * @return A 3D array representing the PPM image.
+   * @throws IOException If an error occurs while reading the file.
+   */
+  private static int[][][] readPPM(String filename) throws IOException {
+    String magicNumber = readMagicNumber(filename);
     if (magicNumber.equals("P3")) {
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          output[i][j][0] = Integer.parseInt(br.readLine().trim()); // Red
-          output[i][j][1] = Integer.parseInt(br.readLine().trim()); // Green
-          output[i][j][2] = Integer.parseInt(br.readLine().trim()); // Blue
-        }
-      }
+      return PlainPnmReader.read(filename);
     } else if (magicNumber.equals("P6")) {
-      FileInputStream fis = new FileInputStream(filename);
-      skipHeader(fis);
-      for (int i = 0; i < height; i++) {
-        for (int j = 0; j < width; j++) {
-          output[i][j][0] = fis.read(); // Red
-          output[i][j][1] = fis.read(); // Green
-          output[i][j][2] = fis.read(); // Blue
-        }
-      }
-      fis.close();
+      return BinaryPnmReader.read(filename);
     }
+    throw new IllegalArgumentException("Invalid PPM format: Only P3 and P6 formats supported");
+  }
 
-    br.close();
-    return output;
+  /**
+   * Reads a binary (P5) or plain (P2) PGM image from a file. Each grey value is copied into all
+   * three channels of the returned image. Plain files are parsed by PlainPnmReader and binary
+   * files are copied out in bulk by BinaryPnmReader.
+   *
+   * @param filename The name of the PGM file to read.
+   * @return A 3D array representing the PGM image.
+   * @throws IOException If an error occurs while reading the file.
+   */
+  private static int[][][] readPGM(String filename) throws IOException {
+    String magicNumber = readMagicNumber(filename);
+    if (magicNumber.equals("P2")) {
+      return PlainPnmReader.read(filename);
+    } else if (magicNumber.equals("P5")) {
+      return BinaryPnmReader.read(filename);
+    }
+    throw new IllegalArgumentException("Invalid PGM format: Only P2 and P5 formats supported");
   }
 
   /**
-   * Skips the header of a PPM file.
+   * Maps a binary (P6) PPM image into memory as a Snap whose pixels are read straight from the
+   * file, so that even very large images can be used without copying them. The file must not
+   * be changed, and so must not be saved over, while the image is in use.
    *
-   * @param fis The FileInputStream to read from.
-   * @throws IOException If an error occurs while reading.
+   * @param filename The name of the P6 PPM file to map.
+   * @return The image, backed by the mapped file.
+   * @throws IOException If an error occurs while reading the file.
    */
-  private static void skipHeader(FileInputStream fis) throws IOException {
-    int newlinesCount = 0;
-    while (newlinesCount < 4) {
-      int readByte = fis.read();
-      if (readByte == '\n') {
-        newlinesCount++;
-      }
+  public static Snap mapSnap(String filename) throws IOException {
+    return BinaryPnmReader.map(filename);
+  }
+
+  /**
+   * Reads the two byte magic number at the start of a PNM file.
+   *
+   * @param filename The name of the PNM file.
+   * @return The magic number, such as "P3" or "P6".
+   * @throws IOException If an error occurs while reading the file.
+   */
+  private static String readMagicNumber(String filename) throws IOException {
+    try (FileInputStream fis = new FileInputStream(filename)) {
+      byte[] magic = fis.readNBytes(2);
+      return new String(magic, StandardCharsets.US_ASCII);
     }
   }
 
@@ -151,11 +260,127 @@ public class SnapUtil {
 
     if (fileExtension.equals("ppm")) {
       writePPM(snap, filename, height, width);
+    } else if (fileExtension.equals("snapw")) {
+      writeSnapWavelet(new SnapImpl(snap), filename);
     } else {
       writeStandardImage(snap, filename, height, width);
     }
   }
 
+  /**
+   * Writes a Snap image to a file. Supports PNG, JPEG, PPM, PGM and SNAPW formats.
+   * Single-channel images are written straight from their stored values where the format allows
+   * it: as an 8-bit greyscale image for PGM, and for PNG or JPEG when the image is grey. Other
+   * images are written in RGB.
+   *
+   * @param snap     The Snap image to be written.
+   * @param filename The name of the file to write the image to.
+   * @throws IOException If an error occurs while writing the file.
+   */
+  public static void writeSnap(Snap snap, String filename) throws IOException {
+    String fileExtension =
+            filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+
+    if (fileExtension.equals("pgm")) {
+      writePGM(snap, filename);
+      return;
+    }
+    if (fileExtension.equals("snapw")) {
+      writeSnapWavelet(snap, filename);
+      return;
+    }
+    if (!fileExtension.equals("ppm") && snap instanceof SingleChannelSnap
+            && ((SingleChannelSnap) snap).getTint() == SingleChannelSnap.Tint.GREY
+            && writeGreyImage((SingleChannelSnap) snap, filename, fileExtension)) {
+      return;
+    }
+    writeSnap(snap.getSnap(), filename, height, width);
+  }
+
+  /**
+   * Writes a Snap image to a file, as writeSnap(Snap, String) does, except that a PPM file is
+   * written in the binary (P6) format when asked for. Binary PPM files are about a quarter of
+   * the size of plain ones and much faster to write and read.
+   *
+   * @param snap     The Snap image to be written.
+   * @param filename The name of the file to write the image to.
+   * @param binary   Whether a PPM file is written as binary (P6) rather than plain (P3).
+   * @throws IOException If an error occurs while writing the file.
+   */
+  public static void writeSnap(Snap snap, String filename, boolean binary) throws IOException {
+    String fileExtension =
+            filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+    if (binary && fileExtension.equals("ppm")) {
+      PnmWriter.writeBinary(snap, filename);
+    } else {
+      writeSnap(snap, filename);
+    }
+  }
+
+  /**
+   * Writes a binary (P5) PGM image to a file, one byte per pixel. Single-channel images are
+   * written from their stored values; other images are written as their luma.
+   *
+   * @param snap     The Snap image to be written.
+   * @param filename The name of the PGM file to write.
+   * @throws IOException If an error occurs while writing the file.
+   */
+  private static void writePGM(Snap snap, String filename) throws IOException {
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+    byte[] row = new byte[width];
+
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(filename))) {
+      out.write(("P5\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+
+      if (snap instanceof SingleChannelSnap) {
+        SingleChannelSnap channelSnap = (SingleChannelSnap) snap;
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            row[j] = (byte) channelSnap.getValue(i, j);
+          }
+          out.write(row);
+        }
+      } else {
+        int[][][] pixels = snap.getSnap();
+        for (int i = 0; i < height; i++) {
+          for (int j = 0; j < width; j++) {
+            int[] pixel = pixels[i][j];
+            row[j] = (byte) Math.round(0.299 * pixel[0] + 0.587 * pixel[1] + 0.114 * pixel[2]);
+          }
+          out.write(row);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes a grey single-channel image to a standard format as an 8-bit greyscale image.
+   *
+   * @param snap          The grey image to be written.
+   * @param filename      The name of the file to write the image to.
+   * @param fileExtension The format to write the image in.
+   * @return true if the image was written, false if the format has no greyscale writer.
+   * @throws IOException If an error occurs while writing the file.
+   */
+  private static boolean writeGreyImage(SingleChannelSnap snap, String filename,
+                                        String fileExtension) throws IOException {
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+    BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    byte[] data = ((DataBufferByte) output.getRaster().getDataBuffer()).getData();
+
+    int index = 0;
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        data[index++] = (byte) snap.getValue(i, j);
+      }
+    }
+    return ImageIO.write(output, fileExtension, new File(filename));
+  }
+
   /**
    * Writes a standard image (PNG, JPEG) to a file.
    *
@@ -168,14 +393,16 @@ public class SnapUtil {
   private static void writeStandardImage(int[][][] snap, String filename,
                                          int height, int width) throws IOException {
     BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    // A new INT_RGB image stores its pixels row by row with no padding, so they are packed
+    // straight into its data buffer
+    int[] data = ((DataBufferInt) output.getRaster().getDataBuffer()).getData();
 
+    int index = 0;
     for (int i = 0; i < height; i++) {
+      int[][] row = snap[i];
       for (int j = 0; j < width; j++) {
-        int red = snap[i][j][0];
-        int green = snap[i][j][1];
-        int blue = snap[i][j][2];
-        int color = (red << 16) + (green << 8) + (blue);
-        output.setRGB(j, i, color);
+        int[] pixel = row[j];
+        data[index++] = (pixel[0] << 16) + (pixel[1] << 8) + pixel[2];
       }
     }
 
@@ -185,7 +412,7 @@ public class SnapUtil {
   }
 
   /**
-   * Writes a PPM image to a file.
+   * Writes a plain (P3) PPM image to a file through PnmWriter.
    *
    * @param snap     A 3D array representing the PPM image to be written.
    * @param filename The name of the PPM file to write.
@@ -195,95 +422,121 @@ public class SnapUtil {
    */
   private static void writePPM(int[][][] snap, String filename,
                                int height, int width) throws IOException {
-    BufferedWriter bw = new BufferedWriter(new FileWriter(filename));
+    PnmWriter.writePlain(snap, filename, height, width);
+  }
 
-    bw.write("P3\n");
-    bw.write(width + " " + height + "\n");
-    bw.write("255\n");
+  /**
+   * Reads a sparse wavelet (.snapw) image, reading every stage of it.
+   *
+   * @param filename The name of the SNAPW file.
+   * @return A 3D array representing the image.
+   * @throws IOException If an error occurs while reading the file.
+   */
+  private static int[][][] readSnapWavelet(String filename) throws IOException {
+    try (SnapWaveletReader reader = new SnapWaveletReader(new FileInputStream(filename))) {
+      reader.readAll();
+      return reader.getSnap().getSnap();
+    }
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        bw.write(snap[i][j][0] + "\n"); // Red
-        bw.write(snap[i][j][1] + "\n"); // Green
-        bw.write(snap[i][j][2] + "\n"); // Blue
+  /**
+   * Writes an image in the sparse wavelet (.snapw) format with the default quantization step.
+   *
+   * @param snap     The Snap image to be written.
+   * @param filename The name of the SNAPW file to write.
+   * @throws IOException If an error occurs while writing the file.
+   */
+  private static void writeSnapWavelet(Snap snap, String filename) throws IOException {
+    try (SnapWaveletWriter writer = new SnapWaveletWriter(
+            new BufferedOutputStream(new FileOutputStream(filename)))) {
+      writer.write(snap);
+    }
+  }
+
+  /**
+   * Gets the width and height of an image file without decoding its pixels. Only the header of
+   * the file is read: the PNM header for PPM and PGM, the SNAPW header, and for PNG and JPEG the
+   * header as parsed by the matching ImageReader. This makes it cheap to validate a file or plan
+   * memory before loading it.
+   *
+   * @param filename The name of the file to probe.
+   * @return A two element array holding the width and then the height of the image.
+   * @throws IOException If an error occurs while reading the file or its format is unknown.
+   */
+  public static int[] probeSize(String filename) throws IOException {
+    String fileExtension =
+            filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
+    if (fileExtension.equals("ppm") || fileExtension.equals("pgm")) {
+      return getPNMSize(filename);
+    } else if (fileExtension.equals("snapw")) {
+      try (SnapWaveletReader reader = new SnapWaveletReader(new FileInputStream(filename))) {
+        return new int[]{reader.getWidth(), reader.getHeight()};
       }
+    } else {
+      return getStandardImageSize(filename);
     }
-    bw.close();
   }
 
   /**
-   * Gets the width of an image file. Supports PNG, JPEG, and PPM formats.
+   * Gets the width of an image file from its header. Supports PNG, JPEG, PPM, PGM and SNAPW
+   * formats.
    *
    * @param filename The name of the file to check the width.
    * @return The width of the image.
    * @throws IOException If an error occurs while reading the file.
    */
   public static int getWidth(String filename) throws IOException {
-    String fileExtension =
-            filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
-    if (fileExtension.equals("ppm")) {
-      return getPPMWidth(filename);
-    } else {
-      BufferedImage input = ImageIO.read(new File(filename));
-      return input.getWidth();
-    }
+    return probeSize(filename)[0];
   }
 
   /**
-   * Gets the height of an image file. Supports PNG, JPEG, and PPM formats.
+   * Gets the height of an image file from its header. Supports PNG, JPEG, PPM, PGM and SNAPW
+   * formats.
    *
    * @param filename The name of the file to check the height.
    * @return The height of the image.
    * @throws IOException If an error occurs while reading the file.
    */
   public static int getHeight(String filename) throws IOException {
-    String fileExtension =
-            filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
-    if (fileExtension.equals("ppm")) {
-      return getPPMHeight(filename);
-    } else {
-      BufferedImage input = ImageIO.read(new File(filename));
-      return input.getHeight();
-    }
+    return probeSize(filename)[1];
   }
 
   /**
-   * Gets the width of a PPM image.
+   * Gets the size of a standard image (PNG, JPEG) from the ImageReader for its format, which
+   * parses the header without decoding any pixels.
    *
-   * @param filename The name of the PPM file.
-   * @return The width of the PPM image.
-   * @throws IOException If an error occurs while reading the file.
+   * @param filename The name of the image file.
+   * @return A two element array holding the width and then the height of the image.
+   * @throws IOException If an error occurs while reading the file or no reader knows it.
    */
-  private static int getPPMWidth(String filename) throws IOException {
-    BufferedReader br = new BufferedReader(new FileReader(filename));
-    br.readLine();
-    String line = br.readLine().trim();
-    while (line.startsWith("#")) {
-      line = br.readLine().trim();
+  private static int[] getStandardImageSize(String filename) throws IOException {
+    try (ImageInputStream stream = ImageIO.createImageInputStream(new File(filename))) {
+      if (stream == null) {
+        throw new IOException("Can't read input file: " + filename);
+      }
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+      if (!readers.hasNext()) {
+        throw new IOException("Unsupported image format: " + filename);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(stream, true, true);
+        return new int[]{reader.getWidth(0), reader.getHeight(0)};
+      } finally {
+        reader.dispose();
+      }
     }
-    String[] dimensions = line.split("\\s+");
-    br.close();
-    return Integer.parseInt(dimensions[0]);
   }
 
   /**
-   * Gets the height of a PPM image.
+   * Gets the size of a PPM or PGM image from its header.
    *
-   * @param filename The name of the PPM file.
-   * @return The height of the PPM image.
+   * @param filename The name of the PPM or PGM file.
+   * @return A two element array holding the width and then the height of the image.
    * @throws IOException If an error occurs while reading the file.
    */
-  private static int getPPMHeight(String filename) throws IOException {
-    BufferedReader br = new BufferedReader(new FileReader(filename));
-    br.readLine();
-    String line = br.readLine().trim();
-    while (line.startsWith("#")) {
-      line = br.readLine().trim();
-    }
-    String[] dimensions = line.split("\\s+");
-    br.close();
-    return Integer.parseInt(dimensions[1]);
+  private static int[] getPNMSize(String filename) throws IOException {
+    PnmHeader header = PnmHeader.read(filename);
+    return new int[]{header.getWidth(), header.getHeight()};
   }
-
-
 }
\ No newline at end of file
@@ -0,0 +1,124 @@
+package controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The SnapWaveletFormat class holds the layout shared by the writer and reader of the sparse
+ * wavelet (.snapw) file format.
+ *
+ * <p>A .snapw file starts with the magic bytes "SNAPW", a version byte, the width and height of
+ * the image as big-endian ints and the quantization step as a big-endian double. The rest of
+ * the file is deflate compressed. It holds the Haar wavelet coefficients of the red, green and
+ * blue channels, padded to powers of two, each divided by the step and rounded to an int. The
+ * coefficients are stored in stages from the coarsest to the finest: stage 0 is the top left
+ * corner holding the coarsest level, and each later stage is the ring of coefficients that
+ * doubles that corner back towards the full matrix. Within a stage each channel in turn stores
+ * the number of its non-zero coefficients, then for each of them the number of zeros before it
+ * and its value, as variable length ints. Everything after the last non-zero coefficient of a
+ * stage is zero.
+ */
+class SnapWaveletFormat {
+
+  static final byte[] MAGIC = {'S', 'N', 'A', 'P', 'W'};
+  static final int VERSION = 1;
+  // The quantization step used when none is given, small enough that images come back within
+  // one level of the original.
+  static final double DEFAULT_STEP = 1.0;
+
+  /**
+   * Gets the number of stages the coefficients of a matrix are stored in.
+   *
+   * @param rows    the number of rows of the padded matrix, a power of two.
+   * @param columns the number of columns of the padded matrix, a power of two.
+   * @return the number of stages.
+   */
+  static int getStageCount(int rows, int columns) {
+    return Integer.numberOfTrailingZeros(Math.max(rows, columns)) + 1;
+  }
+
+  /**
+   * Gets the indices of the coefficients stored in a stage, in the order they are stored.
+   *
+   * @param rows    the number of rows of the padded matrix, a power of two.
+   * @param columns the number of columns of the padded matrix, a power of two.
+   * @param stage   the stage, from 0 for the coarsest.
+   * @return the indices into the matrix, stored row by row.
+   */
+  static int[] getStageIndices(int rows, int columns, int stage) {
+    int level = getStageCount(rows, columns) - 1 - stage;
+    int regionRows = Math.max(1, rows >> level);
+    int regionColumns = Math.max(1, columns >> level);
+    int innerRows = stage == 0 ? 0 : Math.max(1, rows >> (level + 1));
+    int innerColumns = stage == 0 ? 0 : Math.max(1, columns >> (level + 1));
+
+    int[] indices = new int[regionRows * regionColumns - innerRows * innerColumns];
+    int count = 0;
+    for (int i = 0; i < regionRows; i++) {
+      int from = i < innerRows ? innerColumns : 0;
+      for (int j = from; j < regionColumns; j++) {
+        indices[count++] = i * columns + j;
+      }
+    }
+    return indices;
+  }
+
+  /**
+   * Writes an unsigned variable length int, seven bits per byte with the high bit set on all
+   * but the last byte.
+   *
+   * @param out   the stream to write to.
+   * @param value the value to write, read as unsigned.
+   * @throws IOException if the stream cannot be written.
+   */
+  static void writeVarInt(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  /**
+   * Reads an unsigned variable length int written by writeVarInt.
+   *
+   * @param in the stream to read from.
+   * @return the value read.
+   * @throws IOException if the stream ends early or the value is malformed.
+   */
+  static int readVarInt(InputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 35; shift += 7) {
+      int b = in.read();
+      if (b < 0) {
+        throw new IOException("Unexpected end of snapw file");
+      }
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed snapw file");
+  }
+
+  /**
+   * Maps a signed int to an unsigned one so that values near zero stay short.
+   *
+   * @param value the signed value.
+   * @return the zigzag encoded value.
+   */
+  static int zigzag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  /**
+   * Undoes zigzag.
+   *
+   * @param value the zigzag encoded value.
+   * @return the signed value.
+   */
+  static int unzigzag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,179 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.InflaterInputStream;
+
+import model.Snap;
+import model.SnapImpl;
+import model.effects.HaarWavelet;
+
+/**
+ * The SnapWaveletReader class reads images in the sparse wavelet (.snapw) file format described
+ * in SnapWaveletFormat. The file is read progressively one stage at a time, from the coarsest to
+ * the finest. After any number of stages the image can be reconstructed from what has been read
+ * so far, giving a blocky preview that sharpens with every stage until it is the full image.
+ */
+public class SnapWaveletReader implements Closeable {
+
+  private final InputStream in;
+  private final InputStream body;
+  private final int width;
+  private final int height;
+  private final int paddedWidth;
+  private final int paddedHeight;
+  private final double step;
+  private final int stageCount;
+  // The quantized coefficients of each channel read so far; unread ones are zero.
+  private final int[][] coefficients;
+  private int stagesRead;
+
+  /**
+   * Constructs a reader and reads the header of the file.
+   *
+   * @param in the stream to read the file from.
+   * @throws IOException if the stream cannot be read or does not hold a .snapw file.
+   */
+  public SnapWaveletReader(InputStream in) throws IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("Input stream cannot be null");
+    }
+    DataInputStream header = new DataInputStream(in);
+    byte[] magic = new byte[SnapWaveletFormat.MAGIC.length];
+    header.readFully(magic);
+    if (!Arrays.equals(magic, SnapWaveletFormat.MAGIC)) {
+      throw new IOException("Invalid snapw file");
+    }
+    int version = header.readUnsignedByte();
+    if (version != SnapWaveletFormat.VERSION) {
+      throw new IOException("Unsupported snapw version " + version);
+    }
+    this.width = header.readInt();
+    this.height = header.readInt();
+    this.step = header.readDouble();
+    if (width <= 0 || height <= 0 || !(step > 0)) {
+      throw new IOException("Invalid snapw header");
+    }
+
+    this.in = in;
+    this.body = new BufferedInputStream(new InflaterInputStream(in));
+    this.paddedWidth = HaarWavelet.padSize(width);
+    this.paddedHeight = HaarWavelet.padSize(height);
+    this.stageCount = SnapWaveletFormat.getStageCount(paddedHeight, paddedWidth);
+    this.coefficients = new int[3][paddedWidth * paddedHeight];
+  }
+
+  /**
+   * Gets the width of the image.
+   *
+   * @return the width in pixels.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the image.
+   *
+   * @return the height in pixels.
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the number of stages the image is stored in.
+   *
+   * @return the number of stages.
+   */
+  public int getStageCount() {
+    return this.stageCount;
+  }
+
+  /**
+   * Gets the number of stages read so far.
+   *
+   * @return the number of stages read.
+   */
+  public int getStagesRead() {
+    return this.stagesRead;
+  }
+
+  /**
+   * Reads the next stage of coefficients from the file.
+   *
+   * @return true if a stage was read, false if every stage had already been read.
+   * @throws IOException if the stream cannot be read or the stage is corrupt.
+   */
+  public boolean readStage() throws IOException {
+    if (stagesRead == stageCount) {
+      return false;
+    }
+    int[] indices = SnapWaveletFormat.getStageIndices(paddedHeight, paddedWidth, stagesRead);
+    for (int[] channel : coefficients) {
+      int nonZero = SnapWaveletFormat.readVarInt(body);
+      int position = 0;
+      for (int n = 0; n < nonZero; n++) {
+        position += SnapWaveletFormat.readVarInt(body);
+        if (position < 0 || position >= indices.length) {
+          throw new IOException("Corrupt snapw file");
+        }
+        channel[indices[position++]] =
+                SnapWaveletFormat.unzigzag(SnapWaveletFormat.readVarInt(body));
+      }
+    }
+    stagesRead++;
+    return true;
+  }
+
+  /**
+   * Reads every stage not read yet.
+   *
+   * @throws IOException if the stream cannot be read or a stage is corrupt.
+   */
+  public void readAll() throws IOException {
+    while (readStage()) {
+      // keep reading until the finest stage is in
+    }
+  }
+
+  /**
+   * Reconstructs the image from the stages read so far. Before the last stage is read, each
+   * block of pixels takes the average the coarser stages give it.
+   *
+   * @return the reconstructed image, at full size.
+   */
+  public Snap getSnap() {
+    int[][][] pixels = new int[height][width][3];
+    IntStream.range(0, 3).parallel().forEach(k -> {
+      int[] quantized = coefficients[k];
+      double[] channel = new double[quantized.length];
+      for (int i = 0; i < quantized.length; i++) {
+        channel[i] = quantized[i] * step;
+      }
+      new HaarWavelet(paddedHeight, paddedWidth).inverse(channel);
+      for (int i = 0; i < height; i++) {
+        int offset = i * paddedWidth;
+        for (int j = 0; j < width; j++) {
+          pixels[i][j][k] = Math.max(0, Math.min(255, (int) Math.round(channel[offset + j])));
+        }
+      }
+    });
+    return new SnapImpl(pixels);
+  }
+
+  /**
+   * Closes the underlying stream.
+   *
+   * @throws IOException if the stream cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
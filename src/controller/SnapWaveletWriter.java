@@ -0,0 +1,147 @@
+package controller;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.IntStream;
+import java.util.zip.DeflaterOutputStream;
+
+import model.Snap;
+import model.effects.HaarWavelet;
+
+/**
+ * The SnapWaveletWriter class writes images in the sparse wavelet (.snapw) file format described
+ * in SnapWaveletFormat. The coefficients are quantized with a fixed step, so small coefficients
+ * such as those zeroed by compression become zero and cost almost nothing to store. Each stage
+ * is streamed out as soon as it is encoded, from the coarsest to the finest, so no encoded copy
+ * of the file is kept in memory.
+ */
+public class SnapWaveletWriter implements Closeable {
+
+  private final OutputStream out;
+  private final double step;
+
+  /**
+   * Constructs a writer with the default quantization step.
+   *
+   * @param out the stream to write the file to.
+   * @throws IllegalArgumentException if the stream is null.
+   */
+  public SnapWaveletWriter(OutputStream out) throws IllegalArgumentException {
+    this(out, SnapWaveletFormat.DEFAULT_STEP);
+  }
+
+  /**
+   * Constructs a writer with the given quantization step. Larger steps make smaller files at
+   * the cost of accuracy.
+   *
+   * @param out  the stream to write the file to.
+   * @param step the step the coefficients are divided by before rounding.
+   * @throws IllegalArgumentException if the stream is null or the step is not positive.
+   */
+  public SnapWaveletWriter(OutputStream out, double step) throws IllegalArgumentException {
+    if (out == null) {
+      throw new IllegalArgumentException("Output stream cannot be null");
+    }
+    if (!(step > 0) || Double.isInfinite(step)) {
+      throw new IllegalArgumentException("Quantization step must be positive");
+    }
+    this.out = out;
+    this.step = step;
+  }
+
+  /**
+   * Writes an image to the stream as a complete .snapw file.
+   *
+   * @param snap the image to write.
+   * @throws IOException if the stream cannot be written.
+   */
+  public void write(Snap snap) throws IOException {
+    int width = snap.getSnapWidth();
+    int height = snap.getSnapHeight();
+    int paddedWidth = HaarWavelet.padSize(width);
+    int paddedHeight = HaarWavelet.padSize(height);
+    int[][][] pixels = snap.getSnap();
+
+    // Transform and quantize the channels concurrently
+    int[][] coefficients = new int[3][];
+    IntStream.range(0, 3).parallel().forEach(k -> {
+      double[] channel = new double[paddedWidth * paddedHeight];
+      for (int i = 0; i < height; i++) {
+        int offset = i * paddedWidth;
+        for (int j = 0; j < width; j++) {
+          channel[offset + j] = pixels[i][j][k];
+        }
+      }
+      new HaarWavelet(paddedHeight, paddedWidth).forward(channel);
+      int[] quantized = new int[channel.length];
+      for (int i = 0; i < channel.length; i++) {
+        quantized[i] = (int) Math.round(channel[i] / step);
+      }
+      coefficients[k] = quantized;
+    });
+
+    DataOutputStream header = new DataOutputStream(out);
+    header.write(SnapWaveletFormat.MAGIC);
+    header.writeByte(SnapWaveletFormat.VERSION);
+    header.writeInt(width);
+    header.writeInt(height);
+    header.writeDouble(step);
+    header.flush();
+
+    DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+    OutputStream body = new BufferedOutputStream(deflater);
+    int stages = SnapWaveletFormat.getStageCount(paddedHeight, paddedWidth);
+    for (int stage = 0; stage < stages; stage++) {
+      int[] indices = SnapWaveletFormat.getStageIndices(paddedHeight, paddedWidth, stage);
+      for (int[] channel : coefficients) {
+        writeStage(body, channel, indices);
+      }
+    }
+    body.flush();
+    deflater.finish();
+    out.flush();
+  }
+
+  /**
+   * Writes the coefficients of one channel in one stage as runs of zeros and non-zero values.
+   *
+   * @param body    the stream to write to.
+   * @param channel the quantized coefficients of the channel.
+   * @param indices the indices of the coefficients in the stage.
+   * @throws IOException if the stream cannot be written.
+   */
+  private void writeStage(OutputStream body, int[] channel, int[] indices) throws IOException {
+    int nonZero = 0;
+    for (int index : indices) {
+      if (channel[index] != 0) {
+        nonZero++;
+      }
+    }
+    SnapWaveletFormat.writeVarInt(body, nonZero);
+
+    int run = 0;
+    for (int index : indices) {
+      int value = channel[index];
+      if (value == 0) {
+        run++;
+      } else {
+        SnapWaveletFormat.writeVarInt(body, run);
+        SnapWaveletFormat.writeVarInt(body, SnapWaveletFormat.zigzag(value));
+        run = 0;
+      }
+    }
+  }
+
+  /**
+   * Closes the underlying stream.
+   *
+   * @throws IOException if the stream cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,156 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * The MappedSnap class is a Snap whose pixels stay in a buffer of packed RGB bytes, three per
+ * pixel stored row by row, such as the pixel data of a binary PPM file mapped into memory.
+ * Single pixels and statistics are read straight from the buffer, so a very large image can be
+ * inspected without ever being copied onto the heap.
+ *
+ * <p>The RGB array form of the image is only built the first time it is asked for. The buffer
+ * is never written to; if it is mapped from a file, the file must not change while the image
+ * is in use.
+ */
+public class MappedSnap implements Snap {
+
+  // The packed RGB bytes of the image, from index 0.
+  private final ByteBuffer pixels;
+  private final int width;
+  private final int height;
+  // The RGB form of the image, built when first needed.
+  private volatile int[][][] expanded;
+  // The statistics of the image, computed when first needed.
+  private volatile SnapStatistics statistics;
+
+  /**
+   * Constructs a MappedSnap over a buffer of packed RGB bytes.
+   *
+   * @param pixels the packed pixels, three bytes per pixel stored row by row from index 0.
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @throws IllegalArgumentException if the buffer is too small for the dimensions.
+   */
+  public MappedSnap(ByteBuffer pixels, int width, int height) throws IllegalArgumentException {
+    if (pixels == null || width <= 0 || height <= 0
+            || (long) width * height * 3 > pixels.limit()) {
+      throw new IllegalArgumentException("Invalid pixel data provided");
+    }
+    this.pixels = pixels;
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Returns the pixel data of the image in RGB format, copying it out of the buffer on the
+   * first call.
+   *
+   * @return the 3D array containing the pixel data.
+   */
+  @Override
+  public int[][][] getSnap() {
+    int[][][] snap = expanded;
+    if (snap == null) {
+      synchronized (this) {
+        snap = expanded;
+        if (snap == null) {
+          snap = expand();
+          expanded = snap;
+        }
+      }
+    }
+    return snap;
+  }
+
+  @Override
+  public int getSnapHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getSnapWidth() {
+    return this.width;
+  }
+
+  /**
+   * Retrieves the RGB values of a pixel, reading them from the buffer unless the array form of
+   * the image has been built.
+   *
+   * @param x the row of the pixel.
+   * @param y the column of the pixel.
+   * @return an array holding the RGB values of the pixel.
+   */
+  @Override
+  public int[] getPixelValue(int x, int y) {
+    if (x < 0 || x >= height || y < 0 || y >= width) {
+      throw new ArrayIndexOutOfBoundsException("Coordinates out of bounds");
+    }
+    int[][][] snap = expanded;
+    if (snap != null) {
+      return snap[x][y];
+    }
+    int index = (x * width + y) * 3;
+    return new int[]{pixels.get(index) & 0xFF, pixels.get(index + 1) & 0xFF,
+        pixels.get(index + 2) & 0xFF};
+  }
+
+  /**
+   * Gets a read-only view of the packed RGB bytes of the image, for copying it out in bulk.
+   *
+   * @return the packed pixels, three bytes per pixel stored row by row from index 0.
+   */
+  public ByteBuffer getPixels() {
+    return pixels.asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the statistics of the image, computing them on the first call. They are counted
+   * from the buffer unless the array form of the image has been built, since that may have
+   * been written to.
+   *
+   * @return the statistics of the image.
+   */
+  @Override
+  public SnapStatistics getStatistics() {
+    SnapStatistics result = statistics;
+    if (result == null) {
+      synchronized (this) {
+        result = statistics;
+        if (result == null) {
+          result = expanded == null ? SnapStatistics.compute(pixels, width, height)
+                  : SnapStatistics.compute(this);
+          statistics = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void invalidateStatistics() {
+    statistics = null;
+  }
+
+  /**
+   * Copies the packed pixels into a new RGB array, a row at a time with rows copied in
+   * parallel.
+   *
+   * @return a new 3D array holding the RGB pixel data.
+   */
+  private int[][][] expand() {
+    int[][][] snap = new int[height][width][3];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      byte[] row = new byte[width * 3];
+      pixels.get(i * row.length, row);
+      int[][] snapRow = snap[i];
+      for (int j = 0, index = 0; j < width; j++, index += 3) {
+        int[] pixel = snapRow[j];
+        pixel[0] = row[index] & 0xFF;
+        pixel[1] = row[index + 1] & 0xFF;
+        pixel[2] = row[index + 2] & 0xFF;
+      }
+    });
+    return snap;
+  }
+}
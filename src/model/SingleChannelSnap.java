@@ -0,0 +1,166 @@
+package model;
+
+/**
+ * The SingleChannelSnap class is a Snap that stores a single 8-bit value per pixel instead of
+ * three. It is used for images whose channels are all derived from one value, such as the
+ * luma, intensity or value of an image, or a single colour channel of it. A tint says how
+ * that value is turned back into RGB: grey copies it into all three channels, while red, green
+ * and blue place it in their channel and leave the other two at 0.
+ *
+ * <p>The RGB form of the image is only built the first time it is asked for.
+ */
+public class SingleChannelSnap implements Snap {
+
+  /**
+   * The ways the single stored value of a pixel can be turned into RGB.
+   */
+  public enum Tint {
+    GREY, RED, GREEN, BLUE
+  }
+
+  // The value of each pixel, stored row by row.
+  private final byte[] values;
+  private final int width;
+  private final int height;
+  private final Tint tint;
+  // The RGB form of the image, built when first needed.
+  private volatile int[][][] expanded;
+  // The statistics of the image, computed when first needed.
+  private volatile SnapStatistics statistics;
+
+  /**
+   * Constructs a SingleChannelSnap from the values of its pixels.
+   *
+   * @param values the value of each pixel stored row by row, each read as 0 to 255.
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param tint   how the values are turned into RGB.
+   * @throws IllegalArgumentException if the values do not match the dimensions, or the tint is
+   *                                  null.
+   */
+  public SingleChannelSnap(byte[] values, int width, int height, Tint tint)
+          throws IllegalArgumentException {
+    if (values == null || width <= 0 || height <= 0 || values.length != width * height) {
+      throw new IllegalArgumentException("Invalid pixel data provided");
+    }
+    if (tint == null) {
+      throw new IllegalArgumentException("Tint cannot be null");
+    }
+    this.values = values;
+    this.width = width;
+    this.height = height;
+    this.tint = tint;
+  }
+
+  /**
+   * Returns the pixel data of the image in RGB format, building it on the first call.
+   *
+   * @return the 3D array containing the pixel data.
+   */
+  @Override
+  public int[][][] getSnap() {
+    int[][][] snap = expanded;
+    if (snap == null) {
+      synchronized (this) {
+        snap = expanded;
+        if (snap == null) {
+          snap = expand();
+          expanded = snap;
+        }
+      }
+    }
+    return snap;
+  }
+
+  @Override
+  public int getSnapHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int getSnapWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int[] getPixelValue(int x, int y) {
+    if (x < 0 || x >= height || y < 0 || y >= width) {
+      throw new ArrayIndexOutOfBoundsException("Coordinates out of bounds");
+    }
+    return getSnap()[x][y];
+  }
+
+  /**
+   * Gets the stored value of a single pixel.
+   *
+   * @param row    the row of the pixel.
+   * @param column the column of the pixel.
+   * @return the value of the pixel, from 0 to 255.
+   */
+  public int getValue(int row, int column) {
+    if (row < 0 || row >= height || column < 0 || column >= width) {
+      throw new ArrayIndexOutOfBoundsException("Coordinates out of bounds");
+    }
+    return values[row * width + column] & 0xFF;
+  }
+
+  /**
+   * Gets how the stored values are turned into RGB.
+   *
+   * @return the tint of this image.
+   */
+  public Tint getTint() {
+    return this.tint;
+  }
+
+  /**
+   * Returns the statistics of the image, computing them on the first call.
+   *
+   * @return the statistics of the image.
+   */
+  @Override
+  public SnapStatistics getStatistics() {
+    SnapStatistics result = statistics;
+    if (result == null) {
+      synchronized (this) {
+        result = statistics;
+        if (result == null) {
+          result = SnapStatistics.compute(this);
+          statistics = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void invalidateStatistics() {
+    statistics = null;
+  }
+
+  /**
+   * Builds the RGB form of the image from the stored values and the tint.
+   *
+   * @return a new 3D array holding the RGB pixel data.
+   */
+  private int[][][] expand() {
+    int[][][] snap = new int[height][width][3];
+    // GREY fills every channel, RED, GREEN and BLUE fill channels 0, 1 and 2
+    int channel = tint.ordinal() - 1;
+    int index = 0;
+    for (int row = 0; row < height; row++) {
+      int[][] snapRow = snap[row];
+      for (int column = 0; column < width; column++) {
+        int value = values[index++] & 0xFF;
+        if (channel < 0) {
+          snapRow[column][0] = value;
+          snapRow[column][1] = value;
+          snapRow[column][2] = value;
+        } else {
+          snapRow[column][channel] = value;
+        }
+      }
+    }
+    return snap;
+  }
+}
@@ -38,4 +38,18 @@ public interface Snap {
    * @throws IllegalArgumentException if the coordinates are out of the bounds.
    */
   int[] getPixelValue(int x, int y);
+
+  /**
+   * Gets the histograms and other statistics of the Snap image, computing them on the first
+   * call and returning the same statistics afterwards.
+   *
+   * @return the statistics of the image.
+   */
+  SnapStatistics getStatistics();
+
+  /**
+   * Discards the statistics of the Snap image so that they are computed again when next
+   * asked for. This must be called after writing to the array returned by getSnap.
+   */
+  void invalidateStatistics();
 }
@@ -17,19 +17,22 @@ public class SnapImpl implements Snap {
   private final int height;
   // The width of the image in pixels.
   private final int width;
+  // The statistics of the image, computed when first needed.
+  private volatile SnapStatistics statistics;
 
   /**
    * Constructs a SnapImpl object by reading pixel data from an image file.
-   * The SnapUtil class is used to extract pixel data and the image's dimensions.
+   * The SnapUtil class decodes the file once, and the image's dimensions are taken from the
+   * decoded pixel data.
    *
    * @param snapName the name of the file containing the image data.
    * @throws IOException if an error occurs while reading the image file.
    */
   public SnapImpl(String snapName) throws IOException {
     try {
-      this.snap = controller.SnapUtil.readSnap(snapName);
-      this.width = controller.SnapUtil.getWidth(snapName);
-      this.height = SnapUtil.getHeight(snapName);
+      this.snap = SnapUtil.readSnap(snapName);
+      this.width = snap[0].length;
+      this.height = snap.length;
     } catch (Exception e) {
       throw new RuntimeException("Error reading snap " + snapName, e);
     }
@@ -89,4 +92,29 @@ public class SnapImpl implements Snap {
     }
     return this.snap[x][y];
   }
+
+  /**
+   * Returns the statistics of the image, computing them on the first call.
+   *
+   * @return the statistics of the image.
+   */
+  @Override
+  public SnapStatistics getStatistics() {
+    SnapStatistics result = statistics;
+    if (result == null) {
+      synchronized (this) {
+        result = statistics;
+        if (result == null) {
+          result = SnapStatistics.compute(this);
+          statistics = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void invalidateStatistics() {
+    statistics = null;
+  }
 }
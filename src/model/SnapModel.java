@@ -1,5 +1,7 @@
 package model;
 
+import model.mask.Mask;
+
 /**
  * This interface defines the operations available for manipulating
  * image snapshots in the SnapModel. It provides methods for retrieving
@@ -14,6 +16,13 @@ public interface SnapModel {
    */
   int[][][] getSnap();
 
+  /**
+   * Retrieves the current snapshot itself, in whatever form it is stored. Unlike getSnap, this
+   * does not copy the pixel data, so single-channel images stay single-channel.
+   *
+   * @return the current snapshot.
+   */
+  Snap getCurrentSnap();
 
   /**
    * Retrieves the width of the current snapshot.
@@ -33,34 +42,38 @@ public interface SnapModel {
   /**
    * Applies a blur effect to the current snapshot.
    *
+   * @param mask       an optional mask selecting the pixels to change; null changes every pixel.
    * @param percentage an optional parameter representing the intensity of the blur effect.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void blur(Snap mask,int... percentage) throws IllegalArgumentException;
+  void blur(Mask mask, int... percentage) throws IllegalArgumentException;
 
   /**
    * Applies a sharpen effect to the current snapshot.
    *
+   * @param mask       an optional mask selecting the pixels to change; null changes every pixel.
    * @param percentage an optional parameter representing the intensity of the sharpen effect.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void sharpen(Snap mask,int... percentage) throws IllegalArgumentException;
+  void sharpen(Mask mask, int... percentage) throws IllegalArgumentException;
 
   /**
    * Converts the current snapshot to a sepia tone.
    *
+   * @param mask       an optional mask selecting the pixels to change; null changes every pixel.
    * @param percentage an optional parameter representing the intensity of the sepia effect.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void toSepia(Snap mask,int... percentage) throws IllegalArgumentException;
+  void toSepia(Mask mask, int... percentage) throws IllegalArgumentException;
 
   /**
    * Converts the current snapshot to greyscale.
    *
+   * @param mask       an optional mask selecting the pixels to change; null changes every pixel.
    * @param percentage an optional parameter representing the intensity of the greyscale effect.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void toGreyscale(Snap mask,int... percentage) throws IllegalArgumentException;
+  void toGreyscale(Mask mask, int... percentage) throws IllegalArgumentException;
 
   /**
    * Adjusts the brightness of the current snapshot.
@@ -78,12 +91,28 @@ public interface SnapModel {
    */
   void horizontalFlip() throws IllegalArgumentException;
 
+  /**
+   * Rotates the current snapshot clockwise by a multiple of 90 degrees.
+   *
+   * @param degrees the clockwise rotation in degrees; negative values rotate counter-clockwise.
+   * @throws IllegalArgumentException if the degrees are not a multiple of 90.
+   */
+  void rotate(int degrees) throws IllegalArgumentException;
+
+  /**
+   * Transposes the current snapshot across its main diagonal.
+   *
+   * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
+   */
+  void transpose() throws IllegalArgumentException;
+
   /**
    * Retrieves the value component of the current snapshot.
    *
+   * @param mask an optional mask selecting the pixels to change; null changes every pixel.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void valueComponent(Snap mask) throws IllegalArgumentException;
+  void valueComponent(Mask mask) throws IllegalArgumentException;
 
   /**
    * Flips the current snapshot vertically.
@@ -123,37 +152,55 @@ public interface SnapModel {
   /**
    * Retrieves the red component of the current snapshot.
    *
+   * @param mask an optional mask selecting the pixels to change; null changes every pixel.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void redComponent(Snap mask) throws IllegalArgumentException;
+  void redComponent(Mask mask) throws IllegalArgumentException;
 
   /**
    * Retrieves the green component of the current snapshot.
    *
+   * @param mask an optional mask selecting the pixels to change; null changes every pixel.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void greenComponent(Snap mask) throws IllegalArgumentException;
+  void greenComponent(Mask mask) throws IllegalArgumentException;
 
   /**
    * Retrieves the blue component of the current snapshot.
    *
+   * @param mask an optional mask selecting the pixels to change; null changes every pixel.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void blueComponent(Snap mask) throws IllegalArgumentException;
+  void blueComponent(Mask mask) throws IllegalArgumentException;
 
   /**
    * Retrieves the luma component of the current snapshot.
    *
+   * @param mask an optional mask selecting the pixels to change; null changes every pixel.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void lumaComponent(Snap mask) throws IllegalArgumentException;
+  void lumaComponent(Mask mask) throws IllegalArgumentException;
 
   /**
    * Retrieves the intensity component of the current snapshot.
    *
+   * @param mask an optional mask selecting the pixels to change; null changes every pixel.
    * @throws IllegalArgumentException if the current snapshot is invalid or cannot be processed.
    */
-  void intensityComponent(Snap mask) throws IllegalArgumentException;
+  void intensityComponent(Mask mask) throws IllegalArgumentException;
+
+  /**
+   * Retrieves several components of the current snapshot in a single pass over its pixels,
+   * without changing the current snapshot. The supported components are red, green, blue,
+   * luma, intensity and value.
+   *
+   * @param mask       an optional mask selecting the pixels to change; null changes every pixel.
+   * @param components the names of the components to retrieve.
+   * @return the components, in the same order as their names.
+   * @throws IllegalArgumentException if a component is unsupported or the current snapshot
+   *                                  cannot be processed.
+   */
+  Snap[] extractComponents(Mask mask, String... components) throws IllegalArgumentException;
 
   /**
    * Compresses the image to reduce data size using a specified compression ratio.
@@ -163,6 +210,25 @@ public interface SnapModel {
    */
   void compressionComponent(double value) throws IllegalArgumentException;
 
+  /**
+   * Compresses the image at several compression ratios at once, without changing the current
+   * snapshot.
+   *
+   * @param values the compression ratios, one per result.
+   * @return the compressed snapshots, in the same order as the ratios.
+   * @throws IllegalArgumentException if a value is invalid or the snapshot cannot be processed.
+   */
+  Snap[] compressionSweep(double... values) throws IllegalArgumentException;
+
+  /**
+   * Compresses the image using the integer Haar wavelet transform, which is exact when nothing
+   * is dropped.
+   *
+   * @param value the compression ratio, with values between 0 and 1.
+   * @throws IllegalArgumentException if the value is invalid or the snapshot cannot be processed.
+   */
+  void integerCompressionComponent(double value) throws IllegalArgumentException;
+
   /**
    * Adjusts the color correction of the image, optionally using percentage for intensity.
    *
@@ -178,6 +244,15 @@ public interface SnapModel {
    */
   void histogramComponent() throws IllegalArgumentException;
 
+  /**
+   * Generates a histogram of the given size for the red, green, and blue channels in the image.
+   *
+   * @param width  the width of the histogram in pixels.
+   * @param height the height of the histogram in pixels.
+   * @throws IllegalArgumentException if a side is not positive or the snapshot is invalid.
+   */
+  void histogramComponent(int width, int height) throws IllegalArgumentException;
+
   /**
    * Adjusts the black, mid, and white levels of the image for improved brightness and contrast.
    *
@@ -190,6 +265,29 @@ public interface SnapModel {
   void levelAdjustment(int black, int mid, int white, int... percentage)
           throws IllegalArgumentException;
 
+  /**
+   * Stretches each channel of the image so that its range, ignoring a fraction of outliers at
+   * either end, covers 0 to 255.
+   *
+   * @param clipPercentage the percentage of pixels at each end of a channel to ignore.
+   * @param mask           an optional mask selecting the pixels to change; null changes every
+   *                       pixel.
+   * @param percentage     an optional percentage of the width to apply the adjustment to.
+   * @throws IllegalArgumentException if a percentage is out of range or the snapshot is invalid.
+   */
+  void autoLevelsComponent(double clipPercentage, Mask mask, int... percentage)
+          throws IllegalArgumentException;
+
+  /**
+   * Equalizes the histogram of each channel of the image.
+   *
+   * @param mask       an optional mask selecting the pixels to change; null changes every pixel.
+   * @param percentage an optional percentage of the width to apply the adjustment to.
+   * @throws IllegalArgumentException if the percentage is out of range or the snapshot is
+   *                                  invalid.
+   */
+  void equalizeComponent(Mask mask, int... percentage) throws IllegalArgumentException;
+
   /**
    * Resizes the component to the specified width and height.
    *
@@ -2,6 +2,7 @@ package model;
 
 import model.effects.SnapEffectsImpl;
 import model.filter.SnapFilterImpl;
+import model.mask.Mask;
 import model.transform.SnapTransformationImpl;
 
 /**
@@ -51,6 +52,16 @@ public class SnapModelImpl implements SnapModel {
     return newCopy;
   }
 
+  /**
+   * Retrieves the current Snap image without copying it.
+   *
+   * @return The current Snap image.
+   */
+  @Override
+  public Snap getCurrentSnap() {
+    return this.currentSnap;
+  }
+
   /**
    * Retrieves the width of the current Snap image.
    *
@@ -78,7 +89,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if the percentage is invalid or the Snap is null.
    */
   @Override
-  public void blur(Snap mask, int... percentage) throws IllegalArgumentException {
+  public void blur(Mask mask, int... percentage) throws IllegalArgumentException {
     double[][] gaussianKernel = {
             {1 / 16.0, 1 / 8.0, 1 / 16.0},
             {1 / 8.0, 1 / 4.0, 1 / 8.0},
@@ -96,7 +107,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if the percentage is invalid or the Snap is null.
    */
   @Override
-  public void sharpen(Snap mask, int... percentage) throws IllegalArgumentException {
+  public void sharpen(Mask mask, int... percentage) throws IllegalArgumentException {
     double[][] sharpenFilter = {
             {-0.125, -0.125, -0.125, -0.125, -0.125},
             {-0.125, 0.25, 0.25, 0.25, -0.125},
@@ -115,7 +126,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if the percentage is invalid or the Snap is null.
    */
   @Override
-  public void toSepia(Snap mask, int... percentage) throws IllegalArgumentException {
+  public void toSepia(Mask mask, int... percentage) throws IllegalArgumentException {
     double[][] sepia = {{0.393, 0.769, 0.189}, {0.349, 0.686, 0.168}, {0.272, 0.534, 0.131}};
     this.currentSnap =
             new SnapTransformationImpl().applyTransformation(this.currentSnap,
@@ -129,7 +140,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if the percentage is invalid or the Snap is null.
    */
   @Override
-  public void toGreyscale(Snap mask, int... percentage) throws IllegalArgumentException {
+  public void toGreyscale(Mask mask, int... percentage) throws IllegalArgumentException {
     double[][] grayscaleMatrix = {{0.2126, 0.7152, 0.0722}};
     this.currentSnap =
             new SnapTransformationImpl().applyTransformation(this.currentSnap,
@@ -167,13 +178,34 @@ public class SnapModelImpl implements SnapModel {
     this.currentSnap = new SnapTransformationImpl().applyVertical(this.currentSnap);
   }
 
+  /**
+   * Rotates the current Snap image clockwise by the given multiple of 90 degrees.
+   *
+   * @param degrees The clockwise rotation in degrees.
+   * @throws IllegalArgumentException if the degrees are not a multiple of 90.
+   */
+  @Override
+  public void rotate(int degrees) throws IllegalArgumentException {
+    this.currentSnap = new SnapTransformationImpl().rotate(this.currentSnap, degrees);
+  }
+
+  /**
+   * Transposes the current Snap image across its main diagonal.
+   *
+   * @throws IllegalArgumentException if the Snap is null.
+   */
+  @Override
+  public void transpose() throws IllegalArgumentException {
+    this.currentSnap = new SnapTransformationImpl().transpose(this.currentSnap);
+  }
+
   /**
    * Extracts and isolates the "value" component (brightness) of the current Snap image.
    *
    * @throws IllegalArgumentException if the Snap is null.
    */
   @Override
-  public void valueComponent(Snap mask) throws IllegalArgumentException {
+  public void valueComponent(Mask mask) throws IllegalArgumentException {
     this.currentSnap =
             new SnapTransformationImpl().extractColorComponent(this.currentSnap,
                     "value", mask);
@@ -211,7 +243,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if no Snap is loaded
    */
   @Override
-  public void redComponent(Snap mask) throws IllegalArgumentException {
+  public void redComponent(Mask mask) throws IllegalArgumentException {
 
     this.currentSnap =
             new SnapTransformationImpl().extractColorComponent(this.currentSnap,
@@ -224,7 +256,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if no Snap is loaded
    */
   @Override
-  public void greenComponent(Snap mask) throws IllegalArgumentException {
+  public void greenComponent(Mask mask) throws IllegalArgumentException {
 
     this.currentSnap =
             new SnapTransformationImpl().extractColorComponent(this.currentSnap,
@@ -237,7 +269,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if no Snap is loaded
    */
   @Override
-  public void blueComponent(Snap mask) throws IllegalArgumentException {
+  public void blueComponent(Mask mask) throws IllegalArgumentException {
     this.currentSnap =
             new SnapTransformationImpl().extractColorComponent(this.currentSnap,
                     "blue", mask);
@@ -249,7 +281,7 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if no Snap is loaded
    */
   @Override
-  public void lumaComponent(Snap mask) throws IllegalArgumentException {
+  public void lumaComponent(Mask mask) throws IllegalArgumentException {
 
     this.currentSnap =
             new SnapTransformationImpl().extractColorComponent(this.currentSnap,
@@ -262,12 +294,27 @@ public class SnapModelImpl implements SnapModel {
    * @throws IllegalArgumentException if no Snap is loaded
    */
   @Override
-  public void intensityComponent(Snap mask) throws IllegalArgumentException {
+  public void intensityComponent(Mask mask) throws IllegalArgumentException {
     this.currentSnap =
             new SnapTransformationImpl().extractColorComponent(this.currentSnap,
                     "intensity", mask);
   }
 
+  /**
+   * Extracts several components of the current Snap in one pass, leaving the Snap unchanged.
+   *
+   * @param mask       an optional mask selecting the pixels to change.
+   * @param components the names of the components to extract.
+   * @return the extracted components, in the same order as their names.
+   * @throws IllegalArgumentException if a component is unsupported or no Snap is loaded
+   */
+  @Override
+  public Snap[] extractComponents(Mask mask, String... components)
+          throws IllegalArgumentException {
+    return new SnapTransformationImpl().extractColorComponents(this.currentSnap, mask,
+            components);
+  }
+
   /**
    * Compresses the current Snap image using a specified compression value.
    *
@@ -279,6 +326,30 @@ public class SnapModelImpl implements SnapModel {
     this.currentSnap = new SnapEffectsImpl().compress(this.currentSnap, value);
   }
 
+  /**
+   * Compresses the current Snap image at several compression values, leaving it unchanged.
+   *
+   * @param values The compression values, one per result.
+   * @return The compressed images, in the same order as the values.
+   * @throws IllegalArgumentException if no Snap is loaded, no values are given, or a value is
+   *                                  outside 0 to 100
+   */
+  @Override
+  public Snap[] compressionSweep(double... values) throws IllegalArgumentException {
+    return new SnapEffectsImpl().compressSweep(this.currentSnap, values);
+  }
+
+  /**
+   * Compresses the current Snap image using the integer Haar wavelet transform.
+   *
+   * @param value The compression value indicating the degree of compression to apply.
+   * @throws IllegalArgumentException if the value is invalid or if the Snap is null.
+   */
+  @Override
+  public void integerCompressionComponent(double value) throws IllegalArgumentException {
+    this.currentSnap = new SnapEffectsImpl().compressInteger(this.currentSnap, value);
+  }
+
   /**
    * Applies color correction to the current Snap image. Adjusts the color balance
    * based on the specified percentage, which can help align histogram peaks for
@@ -301,6 +372,18 @@ public class SnapModelImpl implements SnapModel {
     this.currentSnap = new SnapEffectsImpl().histogram(this.currentSnap);
   }
 
+  /**
+   * Generates a histogram of the given size for the current Snap image.
+   *
+   * @param width  The width of the histogram in pixels.
+   * @param height The height of the histogram in pixels.
+   * @throws IllegalArgumentException if a side is not positive.
+   */
+  @Override
+  public void histogramComponent(int width, int height) throws IllegalArgumentException {
+    this.currentSnap = new SnapEffectsImpl().histogram(this.currentSnap, width, height);
+  }
+
   /**
    * Adjusts the levels of the current Snap image, including black, mid, and white levels.
    * Optionally, an intensity percentage can be specified to fine-tune the adjustment.
@@ -318,6 +401,34 @@ public class SnapModelImpl implements SnapModel {
             white, percentage);
   }
 
+  /**
+   * Stretches each channel of the current Snap image to cover the full range.
+   *
+   * @param clipPercentage The percentage of pixels at each end of a channel to ignore.
+   * @param mask           An optional mask selecting the pixels to change.
+   * @param percentage     An optional percentage of the width to apply the adjustment to.
+   * @throws IllegalArgumentException if a percentage is out of range.
+   */
+  @Override
+  public void autoLevelsComponent(double clipPercentage, Mask mask, int... percentage)
+          throws IllegalArgumentException {
+    this.currentSnap =
+            new SnapEffectsImpl().autoLevels(this.currentSnap, clipPercentage, mask, percentage);
+  }
+
+  /**
+   * Equalizes the histogram of each channel of the current Snap image.
+   *
+   * @param mask       An optional mask selecting the pixels to change.
+   * @param percentage An optional percentage of the width to apply the adjustment to.
+   * @throws IllegalArgumentException if the percentage is out of range.
+   */
+  @Override
+  public void equalizeComponent(Mask mask, int... percentage) throws IllegalArgumentException {
+    this.currentSnap = new SnapEffectsImpl().equalize(this.currentSnap, mask, percentage);
+  }
+
+
   /**
    * Resizes the component to the specified width and height.
    *
@@ -0,0 +1,263 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * The SnapStatistics class holds data derived from the pixels of an image: the histogram of
+ * each channel, the minimum, maximum and mean of each channel, and a hash of the content.
+ * Snaps compute it the first time it is asked for and keep it, so an image is only ever counted
+ * once however many operations need its histogram.
+ *
+ * <p>A SnapStatistics never changes once built. If the pixel buffer of a Snap is written to
+ * after its statistics were computed, the writer must call invalidateStatistics on the Snap so
+ * that they are computed again.
+ */
+public class SnapStatistics {
+
+  // Images with fewer pixels than this are counted on a single thread.
+  private static final int PARALLEL_THRESHOLD = 1 << 16;
+  // The red, green and blue counts of a band followed by a cache line of padding, so that two
+  // bands never write to the same cache line.
+  private static final int BAND_STRIDE = 3 * 256 + 16;
+
+  private final int[][] frequencies;
+  private final int[] minimum;
+  private final int[] maximum;
+  private final double[] mean;
+  private final long contentHash;
+
+  /**
+   * Constructs the statistics of an image from its histograms and content hash.
+   *
+   * @param frequencies the 256 value histogram of each of the three channels.
+   * @param contentHash the hash of the content of the image.
+   */
+  private SnapStatistics(int[][] frequencies, long contentHash) {
+    this.frequencies = frequencies;
+    this.contentHash = contentHash;
+    this.minimum = new int[3];
+    this.maximum = new int[3];
+    this.mean = new double[3];
+    for (int k = 0; k < 3; k++) {
+      long count = 0;
+      long sum = 0;
+      int low = -1;
+      int high = 0;
+      for (int value = 0; value < 256; value++) {
+        int frequency = frequencies[k][value];
+        if (frequency > 0) {
+          if (low < 0) {
+            low = value;
+          }
+          high = value;
+          count += frequency;
+          sum += (long) frequency * value;
+        }
+      }
+      minimum[k] = Math.max(low, 0);
+      maximum[k] = high;
+      mean[k] = count == 0 ? 0 : (double) sum / count;
+    }
+  }
+
+  /**
+   * Computes the statistics of an image. Large images are split into bands of rows that are
+   * counted in parallel, each into its own partial counts, which are added up at the end.
+   *
+   * @param snap the image to compute the statistics of.
+   * @return the statistics of the image.
+   */
+  public static SnapStatistics compute(Snap snap) {
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+    int[][][] pixels = snap.getSnap();
+    int bands = getBandCount(width, height);
+    int[] counts = new int[bands * BAND_STRIDE];
+    long[] rowHashes = new long[height];
+    IntStream.range(0, bands).parallel().forEach(band ->
+            countRows(pixels, counts, band * BAND_STRIDE, rowHashes,
+                    height * band / bands, height * (band + 1) / bands));
+    return combine(counts, bands, rowHashes, width, height);
+  }
+
+  /**
+   * Computes the statistics of an image stored as packed RGB bytes, three per pixel row by row,
+   * without building its pixel array. The result is the same as for the image held in a
+   * pixel array.
+   *
+   * @param rgb    the packed pixels, from index 0; the buffer is only read by absolute index.
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @return the statistics of the image.
+   */
+  public static SnapStatistics compute(ByteBuffer rgb, int width, int height) {
+    int bands = getBandCount(width, height);
+    int[] counts = new int[bands * BAND_STRIDE];
+    long[] rowHashes = new long[height];
+    IntStream.range(0, bands).parallel().forEach(band ->
+            countPackedRows(rgb, width, counts, band * BAND_STRIDE, rowHashes,
+                    height * band / bands, height * (band + 1) / bands));
+    return combine(counts, bands, rowHashes, width, height);
+  }
+
+  /**
+   * Gets the number of bands of rows an image is counted in.
+   *
+   * @param width  the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @return the number of bands, 1 for small images.
+   */
+  private static int getBandCount(int width, int height) {
+    return (long) height * width < PARALLEL_THRESHOLD ? 1
+            : Math.max(1, Math.min(height, ForkJoinPool.getCommonPoolParallelism()));
+  }
+
+  /**
+   * Adds up the partial counts of every band and combines the row hashes into the statistics
+   * of the image.
+   *
+   * @param counts    the partial counts of every band, each band padded from the next.
+   * @param bands     the number of bands.
+   * @param rowHashes the hash of each row.
+   * @param width     the width of the image in pixels.
+   * @param height    the height of the image in pixels.
+   * @return the statistics of the image.
+   */
+  private static SnapStatistics combine(int[] counts, int bands, long[] rowHashes,
+                                        int width, int height) {
+    int[][] frequencies = new int[3][256];
+    for (int band = 0; band < bands; band++) {
+      int offset = band * BAND_STRIDE;
+      for (int k = 0; k < 3; k++) {
+        for (int value = 0; value < 256; value++) {
+          frequencies[k][value] += counts[offset + k * 256 + value];
+        }
+      }
+    }
+
+    long hash = 31L * width + height;
+    for (long rowHash : rowHashes) {
+      hash = hash * 1_000_003L + rowHash;
+    }
+    return new SnapStatistics(frequencies, hash);
+  }
+
+  /**
+   * Counts the channel values of a range of rows into one band's partial counts, and hashes
+   * each of the rows. Values outside 0 to 255 are counted as the nearest of the two, so they
+   * never land in the counts of another channel or band.
+   *
+   * @param pixels    the pixel data of the image.
+   * @param counts    the partial counts of every band.
+   * @param offset    the index of this band's red counts; its green and blue counts follow.
+   * @param rowHashes the hash of each row, filled in for the rows counted.
+   * @param fromRow   the first row to count.
+   * @param toRow     the row after the last one to count.
+   */
+  private static void countRows(int[][][] pixels, int[] counts, int offset, long[] rowHashes,
+                                int fromRow, int toRow) {
+    for (int i = fromRow; i < toRow; i++) {
+      long hash = 0;
+      for (int[] pixel : pixels[i]) {
+        counts[offset + clamp(pixel[0])]++;
+        counts[offset + 256 + clamp(pixel[1])]++;
+        counts[offset + 512 + clamp(pixel[2])]++;
+        hash = hash * 0x100000001B3L + ((pixel[0] << 16) | (pixel[1] << 8) | pixel[2]);
+      }
+      rowHashes[i] = hash;
+    }
+  }
+
+  /**
+   * Clamps a channel value to the range a histogram counts, 0 to 255.
+   *
+   * @param value the channel value.
+   * @return the value, or the nearest end of the range if it is outside it.
+   */
+  private static int clamp(int value) {
+    return Math.max(0, Math.min(255, value));
+  }
+
+  /**
+   * Counts the channel values of a range of rows of packed RGB bytes into one band's partial
+   * counts, and hashes each of the rows the same way countRows does.
+   *
+   * @param rgb       the packed pixels of the image.
+   * @param width     the width of the image in pixels.
+   * @param counts    the partial counts of every band.
+   * @param offset    the index of this band's red counts; its green and blue counts follow.
+   * @param rowHashes the hash of each row, filled in for the rows counted.
+   * @param fromRow   the first row to count.
+   * @param toRow     the row after the last one to count.
+   */
+  private static void countPackedRows(ByteBuffer rgb, int width, int[] counts, int offset,
+                                      long[] rowHashes, int fromRow, int toRow) {
+    byte[] row = new byte[width * 3];
+    for (int i = fromRow; i < toRow; i++) {
+      rgb.get(i * row.length, row);
+      long hash = 0;
+      for (int j = 0; j < row.length; j += 3) {
+        int red = row[j] & 0xFF;
+        int green = row[j + 1] & 0xFF;
+        int blue = row[j + 2] & 0xFF;
+        counts[offset + red]++;
+        counts[offset + 256 + green]++;
+        counts[offset + 512 + blue]++;
+        hash = hash * 0x100000001B3L + ((red << 16) | (green << 8) | blue);
+      }
+      rowHashes[i] = hash;
+    }
+  }
+
+  /**
+   * Gets the histograms of the red, green and blue channels.
+   *
+   * @return a new 2D array where each row holds the 256 value counts of one channel.
+   */
+  public int[][] getFrequencies() {
+    return new int[][]{frequencies[0].clone(), frequencies[1].clone(),
+        frequencies[2].clone()};
+  }
+
+  /**
+   * Gets the smallest value of a channel.
+   *
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @return the smallest value in the channel.
+   */
+  public int getMinimum(int channel) {
+    return minimum[channel];
+  }
+
+  /**
+   * Gets the largest value of a channel.
+   *
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @return the largest value in the channel.
+   */
+  public int getMaximum(int channel) {
+    return maximum[channel];
+  }
+
+  /**
+   * Gets the mean value of a channel.
+   *
+   * @param channel the channel, 0 for red, 1 for green and 2 for blue.
+   * @return the mean of the values in the channel.
+   */
+  public double getMean(int channel) {
+    return mean[channel];
+  }
+
+  /**
+   * Gets a hash of the size and pixels of the image. Images with the same content have the
+   * same hash.
+   *
+   * @return the content hash.
+   */
+  public long getContentHash() {
+    return this.contentHash;
+  }
+}
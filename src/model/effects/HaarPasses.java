@@ -0,0 +1,239 @@
+package model.effects;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * The HaarPasses class runs the levels and passes of a 2D Haar wavelet transform over a matrix
+ * of a fixed size stored row by row, leaving the arithmetic of each pass to a subclass. The
+ * matrix and scratch space are arrays of type T, such as double[] or int[], so that the same
+ * driver serves every kind of Haar transform.
+ *
+ * <p>Each pass is split into bands that run in parallel, each band with its own scratch space.
+ * A row pass transforms the rows of its band one at a time. A column pass works on blocks of
+ * COLUMN_BLOCK columns, so each pass over the rows reads a short contiguous run of every row
+ * instead of striding down one column at a time. Either way the kernel writes its output to the
+ * scratch space, which is then copied back into the matrix.
+ *
+ * <p>An instance holds scratch space for its passes, so it must not be used by more than one
+ * thread at a time.
+ *
+ * @param <T> the array type of the matrix.
+ */
+abstract class HaarPasses<T> {
+
+  // The number of columns the column passes work on at a time.
+  static final int COLUMN_BLOCK = 16;
+
+  private final int rows;
+  private final int columns;
+  // Scratch space for each band, of max(columns, rows * COLUMN_BLOCK) values.
+  private final List<T> scratch;
+
+  /**
+   * Constructs the passes for matrices of the given size.
+   *
+   * @param rows       the number of rows of the matrix, a power of two.
+   * @param columns    the number of columns of the matrix, a power of two.
+   * @param newScratch creates an array of type T of the given length.
+   * @throws IllegalArgumentException if either side is not a positive power of two.
+   */
+  HaarPasses(int rows, int columns, IntFunction<T> newScratch)
+          throws IllegalArgumentException {
+    if (rows <= 0 || columns <= 0 || Integer.bitCount(rows) != 1
+            || Integer.bitCount(columns) != 1) {
+      throw new IllegalArgumentException("Matrix sides must be powers of two");
+    }
+    this.rows = rows;
+    this.columns = columns;
+    int bands = ForkJoinPool.getCommonPoolParallelism();
+    this.scratch = new ArrayList<>(bands);
+    for (int band = 0; band < bands; band++) {
+      scratch.add(newScratch.apply(Math.max(columns, rows * COLUMN_BLOCK)));
+    }
+  }
+
+  /**
+   * Gets the number of rows of the matrices this transform works on.
+   *
+   * @return the number of rows.
+   */
+  public int getRows() {
+    return this.rows;
+  }
+
+  /**
+   * Gets the number of columns of the matrices this transform works on.
+   *
+   * @return the number of columns.
+   */
+  public int getColumns() {
+    return this.columns;
+  }
+
+  /**
+   * Runs the forward transform in place. At every level the first cw entries of each row are
+   * transformed, then the first ch entries of each column, halving cw and ch until they reach
+   * 1. The two axes keep their own level counts, so the shorter axis simply stops being
+   * transformed once it is done.
+   *
+   * @param x the matrix, stored row by row, of rows * columns values.
+   * @throws IllegalArgumentException if the matrix is not of the size of this transform.
+   */
+  void runForward(T x) throws IllegalArgumentException {
+    checkLength(x);
+    int cw = columns;
+    int ch = rows;
+    while (cw > 1 || ch > 1) {
+      if (cw > 1) {
+        rowPass(x, cw, false);
+        cw = cw / 2;
+      }
+      if (ch > 1) {
+        columnPass(x, ch, false);
+        ch = ch / 2;
+      }
+    }
+  }
+
+  /**
+   * Runs the inverse transform in place, undoing the levels of runForward from the coarsest to
+   * the finest.
+   *
+   * @param x the matrix, stored row by row, of rows * columns values.
+   * @throws IllegalArgumentException if the matrix is not of the size of this transform.
+   */
+  void runInverse(T x) throws IllegalArgumentException {
+    checkLength(x);
+    int levels = Integer.numberOfTrailingZeros(Math.max(rows, columns));
+    for (int level = levels - 1; level >= 0; level--) {
+      int cw = columns >> level;
+      int ch = rows >> level;
+      if (ch > 1) {
+        columnPass(x, ch, true);
+      }
+      if (cw > 1) {
+        rowPass(x, cw, true);
+      }
+    }
+  }
+
+  /**
+   * Applies one level of the transform to the first 2 * half values of a row. The averages are
+   * written to the first half values of the scratch space and the differences to the next half.
+   *
+   * @param x       the matrix holding the row.
+   * @param offset  the index of the first value of the row.
+   * @param half    half the number of values to transform.
+   * @param scratch scratch space of at least 2 * half values.
+   */
+  abstract void transformRow(T x, int offset, int half, T scratch);
+
+  /**
+   * Undoes one level of the transform on the first 2 * half values of a row, writing the
+   * rebuilt pairs to the first 2 * half values of the scratch space.
+   *
+   * @param x       the matrix holding the row.
+   * @param offset  the index of the first value of the row.
+   * @param half    half the number of values to transform.
+   * @param scratch scratch space of at least 2 * half values.
+   */
+  abstract void inverseTransformRow(T x, int offset, int half, T scratch);
+
+  /**
+   * Applies one level of the transform to the first 2 * half values of a block of columns.
+   * Value i of the block's column t is written to index i * COLUMN_BLOCK + t of the scratch
+   * space, with the averages in the first half values of each column and the differences in
+   * the next half.
+   *
+   * @param x       the matrix, stored row by row.
+   * @param columns the number of columns of the matrix.
+   * @param column  the first column of the block.
+   * @param block   the number of columns in the block, at most COLUMN_BLOCK.
+   * @param half    half the number of values of each column to transform.
+   * @param scratch scratch space of at least 2 * half * COLUMN_BLOCK values.
+   */
+  abstract void transformColumns(T x, int columns, int column, int block, int half, T scratch);
+
+  /**
+   * Undoes one level of the transform on the first 2 * half values of a block of columns,
+   * writing the rebuilt pairs to the scratch space laid out as for transformColumns.
+   *
+   * @param x       the matrix, stored row by row.
+   * @param columns the number of columns of the matrix.
+   * @param column  the first column of the block.
+   * @param block   the number of columns in the block, at most COLUMN_BLOCK.
+   * @param half    half the number of values of each column to transform.
+   * @param scratch scratch space of at least 2 * half * COLUMN_BLOCK values.
+   */
+  abstract void inverseTransformColumns(T x, int columns, int column, int block, int half,
+                                        T scratch);
+
+  /**
+   * Transforms the first c values of every row, the rows split into parallel bands.
+   *
+   * @param x       the matrix, stored row by row.
+   * @param c       the number of values of each row to transform, an even number.
+   * @param inverse whether to undo a level instead of applying one.
+   */
+  private void rowPass(T x, int c, boolean inverse) {
+    int bands = scratch.size();
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      T space = scratch.get(band);
+      for (int i = rows * band / bands; i < rows * (band + 1) / bands; i++) {
+        int offset = i * columns;
+        if (inverse) {
+          inverseTransformRow(x, offset, c / 2, space);
+        } else {
+          transformRow(x, offset, c / 2, space);
+        }
+        System.arraycopy(space, 0, x, offset, c);
+      }
+    });
+  }
+
+  /**
+   * Transforms the first c values of every column, the columns split into parallel bands of
+   * whole blocks.
+   *
+   * @param x       the matrix, stored row by row.
+   * @param c       the number of values of each column to transform, an even number.
+   * @param inverse whether to undo a level instead of applying one.
+   */
+  private void columnPass(T x, int c, boolean inverse) {
+    int bands = scratch.size();
+    int columnBlocks = (columns + COLUMN_BLOCK - 1) / COLUMN_BLOCK;
+    IntStream.range(0, bands).parallel().forEach(band -> {
+      T space = scratch.get(band);
+      int fromColumn = columnBlocks * band / bands * COLUMN_BLOCK;
+      int toColumn = Math.min(columnBlocks * (band + 1) / bands * COLUMN_BLOCK, columns);
+      for (int column = fromColumn; column < toColumn; column += COLUMN_BLOCK) {
+        int block = Math.min(COLUMN_BLOCK, toColumn - column);
+        if (inverse) {
+          inverseTransformColumns(x, columns, column, block, c / 2, space);
+        } else {
+          transformColumns(x, columns, column, block, c / 2, space);
+        }
+        for (int i = 0; i < c; i++) {
+          System.arraycopy(space, i * COLUMN_BLOCK, x, i * columns + column, block);
+        }
+      }
+    });
+  }
+
+  /**
+   * Checks that a matrix has the size of this transform.
+   *
+   * @param x the matrix to check.
+   * @throws IllegalArgumentException if the matrix is null or of a different size.
+   */
+  private void checkLength(T x) throws IllegalArgumentException {
+    if (x == null || Array.getLength(x) != rows * columns) {
+      throw new IllegalArgumentException("Matrix does not match the transform size");
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package model.effects;
+
+/**
+ * The HaarWavelet class applies the 2D Haar wavelet transform and its inverse to matrices of a
+ * fixed size, stored row by row in a flat array. Both sides of the matrix must be powers of
+ * two; padSize gives the size an image side should be padded to. The transform is used by
+ * compression and by the sparse wavelet file format, which both need the same coefficients.
+ *
+ * <p>The levels and parallel bands of the passes are run by HaarPasses; this class supplies the
+ * arithmetic of each step. An instance holds scratch space for its passes, so it must not be
+ * used by more than one thread at a time.
+ */
+public class HaarWavelet extends HaarPasses<double[]> {
+
+  // The divisor of every Haar wavelet step.
+  private static final double SQRT_TWO = Math.sqrt(2);
+
+  /**
+   * Constructs a transform for matrices of the given size.
+   *
+   * @param rows    the number of rows of the matrix, a power of two.
+   * @param columns the number of columns of the matrix, a power of two.
+   * @throws IllegalArgumentException if either side is not a positive power of two.
+   */
+  public HaarWavelet(int rows, int columns) throws IllegalArgumentException {
+    super(rows, columns, double[]::new);
+  }
+
+  /**
+   * Determines the size to which a side of an image should be padded (nearest power of two).
+   *
+   * @param size the original size of the side.
+   * @return the padded size.
+   */
+  public static int padSize(int size) {
+    int paddedSize = 1;
+    while (paddedSize < size) {
+      paddedSize *= 2;
+    }
+    return paddedSize;
+  }
+
+  /**
+   * Applies the 2D Haar wavelet transform in place to a matrix stored row by row, one level of
+   * the rows and then one of the columns at a time until both are done.
+   *
+   * @param x the matrix, stored row by row, of rows * columns values.
+   * @throws IllegalArgumentException if the matrix is not of the size of this transform.
+   */
+  public void forward(double[] x) {
+    runForward(x);
+  }
+
+  /**
+   * Applies the inverse 2D Haar wavelet transform in place to a matrix stored row by row,
+   * undoing the levels of forward from the coarsest to the finest.
+   *
+   * @param x the matrix, stored row by row, of rows * columns values.
+   * @throws IllegalArgumentException if the matrix is not of the size of this transform.
+   */
+  public void inverse(double[] x) {
+    runInverse(x);
+  }
+
+  @Override
+  void transformRow(double[] x, int offset, int half, double[] scratch) {
+    for (int k = 0; k < half; k++) {
+      double a = x[offset + 2 * k];
+      double b = x[offset + 2 * k + 1];
+      scratch[k] = (a + b) / SQRT_TWO;
+      scratch[half + k] = (a - b) / SQRT_TWO;
+    }
+  }
+
+  @Override
+  void inverseTransformRow(double[] x, int offset, int half, double[] scratch) {
+    for (int k = 0; k < half; k++) {
+      double a = x[offset + k];
+      double b = x[offset + half + k];
+      scratch[2 * k] = (a + b) / SQRT_TWO;
+      scratch[2 * k + 1] = (a - b) / SQRT_TWO;
+    }
+  }
+
+  @Override
+  void transformColumns(double[] x, int columns, int column, int block, int half,
+                        double[] scratch) {
+    for (int k = 0; k < half; k++) {
+      int first = 2 * k * columns + column;
+      int second = first + columns;
+      int average = k * COLUMN_BLOCK;
+      int difference = (half + k) * COLUMN_BLOCK;
+      for (int t = 0; t < block; t++) {
+        double a = x[first + t];
+        double b = x[second + t];
+        scratch[average + t] = (a + b) / SQRT_TWO;
+        scratch[difference + t] = (a - b) / SQRT_TWO;
+      }
+    }
+  }
+
+  @Override
+  void inverseTransformColumns(double[] x, int columns, int column, int block, int half,
+                               double[] scratch) {
+    for (int k = 0; k < half; k++) {
+      int average = k * columns + column;
+      int difference = (half + k) * columns + column;
+      int first = 2 * k * COLUMN_BLOCK;
+      int second = first + COLUMN_BLOCK;
+      for (int t = 0; t < block; t++) {
+        double a = x[average + t];
+        double b = x[difference + t];
+        scratch[first + t] = (a + b) / SQRT_TWO;
+        scratch[second + t] = (a - b) / SQRT_TWO;
+      }
+    }
+  }
+}
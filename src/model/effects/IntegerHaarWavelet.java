@@ -0,0 +1,103 @@
+package model.effects;
+
+/**
+ * The IntegerHaarWavelet class applies the integer Haar wavelet transform, also known as the
+ * S-transform, and its inverse to int matrices of a fixed size stored row by row. Each pair
+ * (a, b) becomes the floored average b + ((a - b) >> 1) and the difference a - b, computed by
+ * lifting so that only integer arithmetic is needed and the inverse rebuilds the pair exactly.
+ * The levels and banding of the passes are run by HaarPasses, as for HaarWavelet, but the
+ * transform is exactly reversible and an int buffer takes half the memory of a double one.
+ *
+ * <p>An instance holds scratch space for its passes, so it must not be used by more than one
+ * thread at a time.
+ */
+public class IntegerHaarWavelet extends HaarPasses<int[]> {
+
+  /**
+   * Constructs a transform for matrices of the given size.
+   *
+   * @param rows    the number of rows of the matrix, a power of two.
+   * @param columns the number of columns of the matrix, a power of two.
+   * @throws IllegalArgumentException if either side is not a positive power of two.
+   */
+  public IntegerHaarWavelet(int rows, int columns) throws IllegalArgumentException {
+    super(rows, columns, int[]::new);
+  }
+
+  /**
+   * Applies the 2D integer Haar wavelet transform in place to a matrix stored row by row, one
+   * level of the rows and then one of the columns at a time until both are done.
+   *
+   * @param x the matrix, stored row by row, of rows * columns values.
+   * @throws IllegalArgumentException if the matrix is not of the size of this transform.
+   */
+  public void forward(int[] x) {
+    runForward(x);
+  }
+
+  /**
+   * Applies the inverse 2D integer Haar wavelet transform in place to a matrix stored row by
+   * row, rebuilding the original values exactly.
+   *
+   * @param x the matrix, stored row by row, of rows * columns values.
+   * @throws IllegalArgumentException if the matrix is not of the size of this transform.
+   */
+  public void inverse(int[] x) {
+    runInverse(x);
+  }
+
+  @Override
+  void transformRow(int[] x, int offset, int half, int[] scratch) {
+    for (int k = 0; k < half; k++) {
+      int a = x[offset + 2 * k];
+      int b = x[offset + 2 * k + 1];
+      int difference = a - b;
+      scratch[k] = b + (difference >> 1);
+      scratch[half + k] = difference;
+    }
+  }
+
+  @Override
+  void inverseTransformRow(int[] x, int offset, int half, int[] scratch) {
+    for (int k = 0; k < half; k++) {
+      int average = x[offset + k];
+      int difference = x[offset + half + k];
+      int b = average - (difference >> 1);
+      scratch[2 * k] = difference + b;
+      scratch[2 * k + 1] = b;
+    }
+  }
+
+  @Override
+  void transformColumns(int[] x, int columns, int column, int block, int half,
+                        int[] scratch) {
+    for (int k = 0; k < half; k++) {
+      int first = 2 * k * columns + column;
+      int second = first + columns;
+      int average = k * COLUMN_BLOCK;
+      int difference = (half + k) * COLUMN_BLOCK;
+      for (int t = 0; t < block; t++) {
+        int a = x[first + t];
+        int b = x[second + t];
+        scratch[average + t] = b + ((a - b) >> 1);
+        scratch[difference + t] = a - b;
+      }
+    }
+  }
+
+  @Override
+  void inverseTransformColumns(int[] x, int columns, int column, int block, int half,
+                               int[] scratch) {
+    for (int k = 0; k < half; k++) {
+      int average = k * columns + column;
+      int difference = (half + k) * columns + column;
+      int first = 2 * k * COLUMN_BLOCK;
+      int second = first + COLUMN_BLOCK;
+      for (int t = 0; t < block; t++) {
+        int b = x[average + t] - (x[difference + t] >> 1);
+        scratch[first + t] = x[difference + t] + b;
+        scratch[second + t] = b;
+      }
+    }
+  }
+}
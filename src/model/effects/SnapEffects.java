@@ -1,6 +1,7 @@
 package model.effects;
 
 import model.Snap;
+import model.mask.Mask;
 
 /**
  * Interface representing various image processing effects that can be applied to a Snap object.
@@ -19,6 +20,27 @@ public interface SnapEffects {
    */
   Snap compress(Snap snap, double value); // Redesign logic
 
+  /**
+   * Compresses the given Snap image at several compression values at once, sharing the work
+   * that does not depend on the value.
+   *
+   * @param snap   the Snap object containing the image data to be compressed
+   * @param values the compression values to be applied, one per result
+   * @return the compressed images, in the same order as the values
+   * @throws IllegalArgumentException if no values are given or any is outside 0 to 100
+   */
+  Snap[] compressSweep(Snap snap, double... values);
+
+  /**
+   * Compresses the given Snap image using the integer Haar wavelet transform. The transform is
+   * exactly reversible, so at a compression value of 0 the image comes back unchanged.
+   *
+   * @param snap  the Snap object containing the image data to be compressed
+   * @param value the compression value to be applied; should be a positive double
+   * @return a new Snap object with the compressed image data
+   */
+  Snap compressInteger(Snap snap, double value);
+
   /**
    * Generates a histogram from the given Snap image.
    *
@@ -27,6 +49,44 @@ public interface SnapEffects {
    */
   Snap histogram(Snap snap); // fully working
 
+  /**
+   * Generates a histogram of the given size from the given Snap image.
+   *
+   * @param snap   the Snap object containing the image data to generate a histogram from
+   * @param width  the width of the histogram in pixels
+   * @param height the height of the histogram in pixels
+   * @return a new Snap object representing the histogram of the original image
+   * @throws IllegalArgumentException if either side is not positive
+   */
+  Snap histogram(Snap snap, int width, int height);
+
+  /**
+   * Stretches each channel of the given Snap image so that its darkest and brightest values,
+   * ignoring a small fraction of outliers at either end, span the full range of 0 to 255.
+   *
+   * @param snap            the Snap object containing the image data to be adjusted
+   * @param clipPercentage  the percentage of pixels at each end of a channel to ignore
+   * @param mask            an optional mask selecting the pixels to change; null changes every
+   *                        pixel
+   * @param splitPercentage an optional percentage of the width to apply the adjustment to
+   * @return a new Snap object with the adjusted image data
+   * @throws IllegalArgumentException if the clip or split percentage is out of range
+   */
+  Snap autoLevels(Snap snap, double clipPercentage, Mask mask, int... splitPercentage);
+
+  /**
+   * Equalizes the histogram of each channel of the given Snap image, spreading its values
+   * evenly across the range of 0 to 255.
+   *
+   * @param snap            the Snap object containing the image data to be equalized
+   * @param mask            an optional mask selecting the pixels to change; null changes every
+   *                        pixel
+   * @param splitPercentage an optional percentage of the width to apply the adjustment to
+   * @return a new Snap object with the equalized image data
+   * @throws IllegalArgumentException if the split percentage is out of range
+   */
+  Snap equalize(Snap snap, Mask mask, int... splitPercentage);
+
   /**
    * Applies color correction to the given Snap image based on specified percentages.
    *
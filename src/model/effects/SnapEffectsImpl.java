@@ -1,16 +1,13 @@
 package model.effects;
 
-import java.awt.image.BufferedImage;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.stream.IntStream;
 
 import model.Snap;
 import model.SnapImpl;
-import model.filter.HistogramGenerator;
-import model.filter.HistogramGeneratorImpl;
+import model.filter.HistogramRenderer;
+import model.mask.Mask;
+import model.mask.MaskSpans;
 
 
 /**
@@ -34,301 +31,319 @@ public class SnapEffectsImpl implements SnapEffects {
   public Snap compress(Snap snap, double percentage) {
     int width = snap.getSnapWidth();
     int height = snap.getSnapHeight();
+    int[][][] pixels = snap.getSnap();
 
-    double[][] reds = new double[height][width];
-    double[][] greens = new double[height][width];
-    double[][] blues = new double[height][width];
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        reds[i][j] = snap.getPixelValue(i, j)[0];
-        greens[i][j] = snap.getPixelValue(i, j)[1];
-        blues[i][j] = snap.getPixelValue(i, j)[2];
-      }
-    }
-
-    // Unpad each compressed channel to get the original size
-    double[][][] compressedChannels = compressRGBChannels(reds, greens, blues,
-            percentage, width, height);
-    double[][] processedReds = compressedChannels[0];
-    double[][] processedGreens = compressedChannels[1];
-    double[][] processedBlues = compressedChannels[2];
+    // Each axis is padded to its own nearest power of two
+    int paddedWidth = HaarWavelet.padSize(width);
+    int paddedHeight = HaarWavelet.padSize(height);
+    double compressionPercentage = percentage / 100;
 
+    // The channels are independent, so they are compressed concurrently
     int[][][] compressedPixels = new int[height][width][3];
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        compressedPixels[i][j][0] = clamp((int) processedReds[i][j]);
-        compressedPixels[i][j][1] = clamp((int) processedGreens[i][j]);
-        compressedPixels[i][j][2] = clamp((int) processedBlues[i][j]);
-
-      }
-    }
+    IntStream.range(0, 3).parallel().forEach(k -> {
+      double[] channel = new double[paddedWidth * paddedHeight];
+      loadChannel(pixels, k, channel, paddedWidth);
+      compressChannel(channel, new HaarWavelet(paddedHeight, paddedWidth), compressionPercentage);
+      storeChannel(channel, compressedPixels, k, paddedWidth);
+    });
 
     return new SnapImpl(compressedPixels);
   }
 
   /**
-   * Compresses a 2D channel array using Haar wavelet transformation and thresholding.
+   * Compresses an image at several percentages at once. The forward Haar wavelet transform of
+   * each channel and the sorted magnitudes of its coefficients are worked out only once; each
+   * percentage then only needs its own thresholding and inverse transform. A single transform
+   * and a single working buffer serve every channel and percentage, and the parallelism comes
+   * from the bands of the transform itself. Each result is the same as compressing the image
+   * at that percentage alone.
    *
-   * @param channel    The input channel array.
-   * @param percentage The percentage of values to keep during compression.
-   * @return The compressed channel array.
+   * @param snap        The Snap object representing the image to compress.
+   * @param percentages The percentages of pixel data to retain, one per result.
+   * @return The compressed images, in the same order as the percentages.
+   * @throws IllegalArgumentException if no percentages are given or any is outside 0 to 100.
    */
-  private double[][] compressChannel(double[][] channel, double percentage) {
-    int height = channel.length;
-    int width = channel[0].length;
-
-    // 2D Haar wavelet transform
-    double[][] transformedImage = haarTransform2D(channel, width);
-
-    // Thresholding
-    double[] uniqueValues = getUniqueValues(transformedImage);
-    double threshold = findThreshold(uniqueValues, percentage);
+  @Override
+  public Snap[] compressSweep(Snap snap, double... percentages)
+          throws IllegalArgumentException {
+    if (percentages == null || percentages.length == 0) {
+      throw new IllegalArgumentException("At least one compression percentage is required");
+    }
+    for (double percentage : percentages) {
+      if (!(percentage >= 0 && percentage <= 100)) {
+        throw new IllegalArgumentException("Compression percentage must be between 0 and 100");
+      }
+    }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (Math.abs(transformedImage[i][j]) < threshold) {
-          transformedImage[i][j] = 0.0;
+    int width = snap.getSnapWidth();
+    int height = snap.getSnapHeight();
+    int[][][] pixels = snap.getSnap();
+
+    int paddedWidth = HaarWavelet.padSize(width);
+    int paddedHeight = HaarWavelet.padSize(height);
+    HaarWavelet wavelet = new HaarWavelet(paddedHeight, paddedWidth);
+    double[] channel = new double[paddedWidth * paddedHeight];
+
+    int[][][][] compressedPixels = new int[percentages.length][height][width][3];
+    for (int k = 0; k < 3; k++) {
+      // Forward transform and sort the channel once
+      double[] coefficients = new double[paddedWidth * paddedHeight];
+      loadChannel(pixels, k, coefficients, paddedWidth);
+      wavelet.forward(coefficients);
+      double[] sortedMagnitudes = getUniqueValues(coefficients);
+      Arrays.sort(sortedMagnitudes);
+
+      // Threshold and invert a copy of the coefficients for every percentage
+      for (int result = 0; result < percentages.length; result++) {
+        double threshold = findSortedThreshold(sortedMagnitudes, percentages[result] / 100);
+        for (int i = 0; i < channel.length; i++) {
+          double value = coefficients[i];
+          channel[i] = Math.abs(value) < threshold ? 0.0 : value;
         }
+        wavelet.inverse(channel);
+        storeChannel(channel, compressedPixels[result], k, paddedWidth);
       }
     }
 
-    // Inverting the 2D Haar wavelet transform
-    transformedImage = inverseHaarTransform2D(transformedImage, width);
-
-    return transformedImage;
+    Snap[] compressed = new Snap[percentages.length];
+    for (int result = 0; result < percentages.length; result++) {
+      compressed[result] = new SnapImpl(compressedPixels[result]);
+    }
+    return compressed;
   }
 
-
   /**
-   * Compresses the RGB channels of an image by padding each channel to the nearest power of
-   * two, applying Haar wavelet compression, and then unpadding the result to its original size.
+   * Compresses an image using the integer Haar wavelet transform. The coefficients are
+   * thresholded in the same way as compress, but the transform works on int buffers and is
+   * exactly reversible, so an image compressed at 0% comes back unchanged.
    *
-   * @param reds       2D array of red channel values.
-   * @param greens     2D array of green channel values.
-   * @param blues      2D array of blue channel values.
-   * @param percentage Percentage of pixel data to retain.
-   * @param widthSnap  Width of the original Snap image.
-   * @param heightSnap Height of the original Snap image.
-   * @return A 3D array containing compressed RGB channels.
+   * @param snap       The Snap object representing the image to compress.
+   * @param percentage The percentage of pixel data to retain.
+   * @return A new Snap object with the compressed image.
    */
-  private double[][][] compressRGBChannels(double[][] reds, double[][] greens,
-                                           double[][] blues, double percentage, int widthSnap,
-                                           int heightSnap) {
-    int width = widthSnap;
-    int height = heightSnap;
+  @Override
+  public Snap compressInteger(Snap snap, double percentage) {
+    int width = snap.getSnapWidth();
+    int height = snap.getSnapHeight();
+    int[][][] pixels = snap.getSnap();
 
-    // Calculate the padded size based on the maximum of width and height
-    int paddedSize = padSize(Math.max(width, height));
+    int paddedWidth = HaarWavelet.padSize(width);
+    int paddedHeight = HaarWavelet.padSize(height);
+    double compressionPercentage = percentage / 100;
 
-    // Pad each RGB channel
-    double[][] paddedReds = padChannel(reds, paddedSize);
-    double[][] paddedGreens = padChannel(greens, paddedSize);
-    double[][] paddedBlues = padChannel(blues, paddedSize);
+    int[][][] compressedPixels = new int[height][width][3];
+    IntStream.range(0, 3).parallel().forEach(k -> {
+      int[] channel = new int[paddedWidth * paddedHeight];
+      loadChannel(pixels, k, channel, paddedWidth);
+
+      IntegerHaarWavelet wavelet = new IntegerHaarWavelet(paddedHeight, paddedWidth);
+      wavelet.forward(channel);
+      int threshold = findIntegerThreshold(channel, compressionPercentage);
+      for (int i = 0; i < channel.length; i++) {
+        if (Math.abs(channel[i]) < threshold) {
+          channel[i] = 0;
+        }
+      }
+      wavelet.inverse(channel);
+      storeChannel(channel, compressedPixels, k, paddedWidth);
+    });
 
-    // Calculate the compression percentage for the Haar wavelet transformation
-    double compressionPercentage = percentage / 100;
-    // Compress each padded channel
-    double[][] compressedReds = compressChannel(paddedReds, compressionPercentage);
-    double[][] compressedGreens = compressChannel(paddedGreens, compressionPercentage);
-    double[][] compressedBlues = compressChannel(paddedBlues, compressionPercentage);
-
-    // Unpad each compressed channel to obtain the original size
-    double[][] unpaddedReds = unpadChannel(compressedReds, height, width);
-    double[][] unpaddedGreens = unpadChannel(compressedGreens, height, width);
-    double[][] unpaddedBlues = unpadChannel(compressedBlues, height, width);
-
-    // Return the result as a 3D array representing the compressed RGB channels
-    return new double[][][]{unpaddedReds, unpaddedGreens, unpaddedBlues};
+    return new SnapImpl(compressedPixels);
   }
 
   /**
-   * Pads a 2D channel array to a specified size.
+   * Finds the threshold for integer compression in the same way as findThreshold: the unique
+   * non-zero magnitude at the cut-off position in sorted order. The magnitudes of integer
+   * coefficients are small, so they are marked in a table indexed by magnitude, which also
+   * yields them already sorted.
    *
-   * @param channel    The original channel array to pad.
-   * @param paddedSize The size to which the channel should be padded.
-   * @return The padded channel array.
+   * @param coefficients The integer wavelet coefficients of a channel.
+   * @param percentage   The percentage of values to keep.
+   * @return The calculated threshold.
    */
-  private double[][] padChannel(double[][] channel, int paddedSize) {
-    double[][] paddedChannel = new double[paddedSize][paddedSize];
-    for (int i = 0; i < channel.length; i++) {
-      System.arraycopy(channel[i], 0, paddedChannel[i], 0, channel[i].length);
+  private int findIntegerThreshold(int[] coefficients, double percentage) {
+    int largest = 0;
+    for (int value : coefficients) {
+      largest = Math.max(largest, Math.abs(value));
     }
-    return paddedChannel;
-  }
-
-  /**
-   * Unpads a padded channel array to its original dimensions.
-   *
-   * @param paddedImage    The padded channel array to unpad.
-   * @param originalHeight The original height of the channel.
-   * @param originalWidth  The original width of the channel.
-   * @return The unpadded channel array.
-   */
-  private double[][] unpadChannel(double[][] paddedImage, int originalHeight,
-                                  int originalWidth) {
-    double[][] originalImage = new double[originalHeight][originalWidth];
-
-    for (int i = 0; i < originalHeight; i++) {
-      System.arraycopy(paddedImage[i], 0, originalImage[i], 0, originalWidth);
+    boolean[] present = new boolean[largest + 1];
+    int uniqueCount = 0;
+    for (int value : coefficients) {
+      int magnitude = Math.abs(value);
+      if (magnitude != 0 && !present[magnitude]) {
+        present[magnitude] = true;
+        uniqueCount++;
+      }
     }
 
-    return originalImage;
+    int numToReset = (int) (uniqueCount * percentage);
+    if (numToReset < 1) {
+      return 0;
+    }
+    for (int magnitude = 1; ; magnitude++) {
+      if (present[magnitude] && --numToReset == 0) {
+        return magnitude;
+      }
+    }
   }
 
   /**
-   * Determines the size to which a channel should be padded (nearest power of two).
+   * Copies one channel of an image into the top left corner of a padded buffer, stored row by
+   * row. The rest of the buffer is left as it is, so a new buffer is padded with zeros.
    *
-   * @param size The original size of the channel.
-   * @return The padded size.
+   * @param pixels      The pixel data of the image; its size gives the area copied.
+   * @param k           The channel to copy.
+   * @param channel     The padded buffer to copy into.
+   * @param paddedWidth The number of columns of the buffer.
    */
-  private int padSize(int size) {
-    int paddedSize = 1;
-    while (paddedSize < size) {
-      paddedSize *= 2;
+  private void loadChannel(int[][][] pixels, int k, double[] channel, int paddedWidth) {
+    for (int i = 0; i < pixels.length; i++) {
+      int[][] row = pixels[i];
+      int offset = i * paddedWidth;
+      for (int j = 0; j < row.length; j++) {
+        channel[offset + j] = row[j][k];
+      }
     }
-    return paddedSize;
   }
 
   /**
-   * Applies the 2D Haar wavelet transform to an input matrix.
+   * Copies one channel of an image into an int buffer, in the same way as the double version.
    *
-   * @param x The input matrix.
-   * @param s The size of the matrix.
-   * @return The transformed matrix.
+   * @param pixels      The pixel data of the image; its size gives the area copied.
+   * @param k           The channel to copy.
+   * @param channel     The padded buffer to copy into.
+   * @param paddedWidth The number of columns of the buffer.
    */
-  private double[][] haarTransform2D(double[][] x, int s) {
-    int c = s;
-
-    while (c > 1) {
-      for (int i = 0; i < s; i++) {
-        double[] row = new double[c];
-        System.arraycopy(x[i], 0, row, 0, c);
-        row = transformSequence1D(row);
-        System.arraycopy(row, 0, x[i], 0, c);
+  private void loadChannel(int[][][] pixels, int k, int[] channel, int paddedWidth) {
+    for (int i = 0; i < pixels.length; i++) {
+      int[][] row = pixels[i];
+      int offset = i * paddedWidth;
+      for (int j = 0; j < row.length; j++) {
+        channel[offset + j] = row[j][k];
       }
-
-      for (int j = 0; j < s; j++) {
-        double[] column = new double[c];
-        for (int i = 0; i < c; i++) {
-          column[i] = x[i][j];
-        }
-        column = transformSequence1D(column);
-        for (int i = 0; i < c; i++) {
-          x[i][j] = column[i];
-        }
-      }
-
-      c = c / 2;
     }
-
-    return x;
   }
 
   /**
-   * Applies the inverse Haar wavelet transform to a transformed sequence.
+   * Copies a padded channel back into one channel of an image, clamping each value.
    *
-   * @param s The transformed sequence.
-   * @return The inverted sequence.
+   * @param channel     The padded channel, stored row by row.
+   * @param pixels      The pixel data to copy into; its size gives the area copied.
+   * @param k           The channel to copy into.
+   * @param paddedWidth The number of columns of the padded channel.
    */
-  private double[][] inverseHaarTransform2D(double[][] x, int s) {
-    int c = 2;
-
-    while (c <= s) {
-      for (int j = 0; j < s; j++) {
-        double[] column = new double[c];
-        for (int i = 0; i < c; i++) {
-          column[i] = x[i][j];
-        }
-        column = inverseTransform1D(column);
-        for (int i = 0; i < c; i++) {
-          x[i][j] = column[i];
-        }
+  private void storeChannel(double[] channel, int[][][] pixels, int k, int paddedWidth) {
+    for (int i = 0; i < pixels.length; i++) {
+      int[][] row = pixels[i];
+      int offset = i * paddedWidth;
+      for (int j = 0; j < row.length; j++) {
+        row[j][k] = clamp((int) channel[offset + j]);
       }
-
-      for (int i = 0; i < s; i++) {
-        double[] row = new double[c];
-        System.arraycopy(x[i], 0, row, 0, c);
-        row = inverseTransform1D(row);
-        System.arraycopy(row, 0, x[i], 0, c);
-      }
-
-      c = c * 2;
     }
-
-    return x;
   }
 
   /**
-   * Applies the Haar wavelet transform to a sequence of values.
+   * Copies a padded int channel back into one channel of an image, in the same way as the
+   * double version.
    *
-   * @param s The input sequence.
-   * @return The transformed sequence.
+   * @param channel     The padded channel, stored row by row.
+   * @param pixels      The pixel data to copy into; its size gives the area copied.
+   * @param k           The channel to copy into.
+   * @param paddedWidth The number of columns of the padded channel.
    */
-  private double[] transformSequence1D(double[] s) {
-    List<Double> avg = new ArrayList<>();
-    List<Double> diff = new ArrayList<>();
-
-    for (int i = 0; i < s.length; i += 2) {
-      double a = s[i];
-      double b = s[i + 1];
-      double av = (a + b) / Math.sqrt(2);
-      double di = (a - b) / Math.sqrt(2);
-      avg.add(av);
-      diff.add(di);
+  private void storeChannel(int[] channel, int[][][] pixels, int k, int paddedWidth) {
+    for (int i = 0; i < pixels.length; i++) {
+      int[][] row = pixels[i];
+      int offset = i * paddedWidth;
+      for (int j = 0; j < row.length; j++) {
+        row[j][k] = clamp(channel[offset + j]);
+      }
     }
-
-    List<Double> result = new ArrayList<>(avg);
-    result.addAll(diff);
-
-    return result.stream().mapToDouble(Double::doubleValue).toArray();
   }
 
   /**
-   * Applies the inverse Haar wavelet transform to a transformed sequence.
+   * Compresses a channel in place using Haar wavelet transformation and thresholding.
    *
-   * @param s The transformed sequence.
-   * @return The inverted sequence.
+   * @param channel    The channel, stored row by row.
+   * @param wavelet    The transform for the size of the channel.
+   * @param percentage The percentage of values to keep during compression.
    */
-  private double[] inverseTransform1D(double[] s) {
-    double[] avg = Arrays.copyOfRange(s, 0, s.length / 2);
-    double[] diff = Arrays.copyOfRange(s, s.length / 2, s.length);
-
-    List<Double> result = new ArrayList<>();
-    for (int i = 0, j = 0; i < avg.length; i++, j++) {
-      double a = avg[i];
-      double b = diff[j];
-      double av = (a + b) / Math.sqrt(2);
-      double di = (a - b) / Math.sqrt(2);
-      result.add(av);
-      result.add(di);
+  private void compressChannel(double[] channel, HaarWavelet wavelet, double percentage) {
+    // 2D Haar wavelet transform
+    wavelet.forward(channel);
+
+    // Thresholding, which depends only on the values and not the order they are found in
+    double[] uniqueValues = getUniqueValues(channel);
+    double threshold = findThreshold(uniqueValues, percentage);
+
+    for (int i = 0; i < channel.length; i++) {
+      if (Math.abs(channel[i]) < threshold) {
+        channel[i] = 0.0;
+      }
     }
 
-    return result.stream().mapToDouble(Double::doubleValue).toArray();
+    // Inverting the 2D Haar wavelet transform
+    wavelet.inverse(channel);
   }
 
   /**
-   * Extracts unique non-zero values from a 2D matrix.
+   * Extracts the unique magnitudes of the non-zero values of a matrix. Values are collected
+   * in an open-addressing hash table of their bit patterns, so no value is ever boxed. The
+   * empty slot marker is 0, which is the bit pattern of 0.0 and so never stored.
    *
-   * @param image The input matrix.
+   * @param image The input matrix, stored row by row.
    * @return An array containing unique non-zero values.
    */
-  private double[] getUniqueValues(double[][] image) {
-    Set<Double> uniqueValues = new HashSet<>();
+  private double[] getUniqueValues(double[] image) {
+    int count = 0;
+    for (double value : image) {
+      if (value != 0.0) {
+        count++;
+      }
+    }
 
-    for (double[] row : image) {
-      for (double value : row) {
-        if (value != 0.0) {
-          uniqueValues.add(Math.abs(value));
-        }
+    // Keep the table at most half full
+    int capacity = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+    int mask = capacity - 1;
+    long[] table = new long[capacity];
+    double[] uniqueValues = new double[count];
+    int uniqueCount = 0;
+
+    for (double value : image) {
+      if (value == 0.0) {
+        continue;
+      }
+      double magnitude = Math.abs(value);
+      long bits = Double.doubleToLongBits(magnitude);
+      int slot = mix(bits) & mask;
+      while (table[slot] != 0L && table[slot] != bits) {
+        slot = (slot + 1) & mask;
+      }
+      if (table[slot] == 0L) {
+        table[slot] = bits;
+        uniqueValues[uniqueCount++] = magnitude;
       }
     }
 
-    return uniqueValues.stream().mapToDouble(Double::doubleValue).toArray();
+    return Arrays.copyOf(uniqueValues, uniqueCount);
+  }
+
+  /**
+   * Spreads the bits of a value's bit pattern so that nearby values land in different slots
+   * of the hash table.
+   *
+   * @param bits The bit pattern of the value.
+   * @return The mixed hash.
+   */
+  private int mix(long bits) {
+    long h = bits * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
   }
 
   /**
    * Finds the threshold for channel compression based on a given percentage of unique values.
+   * The threshold is the value that would be at the cut-off position if the values were
+   * sorted; it is found by selection, which only partially orders the values.
    *
    * @param values     The array of unique values.
    * @param percentage The percentage of values to keep.
@@ -340,37 +355,104 @@ public class SnapEffectsImpl implements SnapEffects {
       return 0.0;
     }
 
-    // Sort the unique values
-    Arrays.sort(values);
+    return selectSmallest(values, numToReset - 1);
+  }
+
+  /**
+   * Finds the threshold for channel compression from unique values that are already sorted in
+   * ascending order. It gives the same threshold as findThreshold.
+   *
+   * @param sortedValues The sorted array of unique values.
+   * @param percentage   The percentage of values to keep.
+   * @return The calculated threshold.
+   */
+  private double findSortedThreshold(double[] sortedValues, double percentage) {
+    int numToReset = (int) (sortedValues.length * percentage);
+    if (numToReset < 1) {
+      return 0.0;
+    }
+
+    return sortedValues[numToReset - 1];
+  }
+
+  /**
+   * Finds the value that would be at the given position if the values were sorted in ascending
+   * order, using quickselect. The values are reordered in the process. If partitioning keeps
+   * going badly the remaining range is sorted instead, so the worst case stays O(n log n).
+   *
+   * @param values The values to select from.
+   * @param k      The position in sorted order of the value to find.
+   * @return The value at position k in sorted order.
+   */
+  private double selectSmallest(double[] values, int k) {
+    int left = 0;
+    int right = values.length - 1;
+    int rounds = 2 * (32 - Integer.numberOfLeadingZeros(values.length));
+
+    while (left < right) {
+      if (rounds-- == 0) {
+        Arrays.sort(values, left, right + 1);
+        return values[k];
+      }
+
+      // Median of three as the pivot
+      int middle = (left + right) >>> 1;
+      double pivot = Math.max(Math.min(values[left], values[middle]),
+              Math.min(Math.max(values[left], values[middle]), values[right]));
 
-    return values[numToReset - 1];
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (values[i] < pivot) {
+          i++;
+        }
+        while (values[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          double swap = values[i];
+          values[i] = values[j];
+          values[j] = swap;
+          i++;
+          j--;
+        }
+      }
+
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return values[k];
+      }
+    }
+    return values[k];
   }
 
   /**
-   * Generates a histogram image for the Snap object.
+   * Generates a 256x256 histogram image for the Snap object.
    *
    * @param snap The Snap object representing the image.
    * @return A Snap object containing the histogram as an image.
    */
   @Override
   public Snap histogram(Snap snap) {
-    HistogramGenerator histogramGenerator = new HistogramGeneratorImpl();
-    BufferedImage image = histogramGenerator.createHistogram(snap);
-    int width = image.getWidth();
-    int height = image.getHeight();
-    int[][][] output = new int[height][width][3];
-
-    // Convert BufferedImage to 3D array format
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int color = image.getRGB(j, i);
-        output[i][j][0] = (color >> 16) & 0xff; // Red
-        output[i][j][1] = (color >> 8) & 0xff;  // Green
-        output[i][j][2] = color & 0xff;         // Blue
-      }
-    }
+    return histogram(snap, 256, 256);
+  }
 
-    return new SnapImpl(output);
+  /**
+   * Generates a histogram image of the given size for the Snap object. The histogram is drawn
+   * straight into the pixel data of the result from the cached frequencies of the image.
+   *
+   * @param snap   The Snap object representing the image.
+   * @param width  The width of the histogram in pixels.
+   * @param height The height of the histogram in pixels.
+   * @return A Snap object containing the histogram as an image.
+   */
+  @Override
+  public Snap histogram(Snap snap, int width, int height) {
+    HistogramRenderer renderer = new HistogramRenderer(width, height);
+    return new SnapImpl(renderer.render(snap.getStatistics().getFrequencies()));
   }
 
 
@@ -397,27 +479,40 @@ public class SnapEffectsImpl implements SnapEffects {
       splitPoint = (width * splitPercentage[0]) / 100;
     }
 
-    HistogramGenerator histogramGenerator = new HistogramGeneratorImpl();
-    int[][] frequencies = histogramGenerator.getFrequencies(snap);
-    int redPeak = findPeak(frequencies[0]);
-    int greenPeak = findPeak(frequencies[1]);
-    int bluePeak = findPeak(frequencies[2]);
-    int avgPeak = (redPeak + greenPeak + bluePeak) / 3;
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (j < splitPoint) {
-          originalPixels[i][j][0] = clamp(snap.getPixelValue(i, j)[0] - avgPeak + redPeak);
-          originalPixels[i][j][1] = clamp(snap.getPixelValue(i, j)[1] - avgPeak + greenPeak);
-          originalPixels[i][j][2] = clamp(snap.getPixelValue(i, j)[2] - avgPeak + bluePeak);
-        } else {
-          originalPixels[i][j] = snap.getPixelValue(i, j);
-        }
-        //System.out.println("one pixel");
+    // The histograms come from the cached statistics of the input, which stays untouched
+    int[][] frequencies = snap.getStatistics().getFrequencies();
+    int[] peaks = {findPeak(frequencies[0]), findPeak(frequencies[1]),
+        findPeak(frequencies[2])};
+    int avgPeak = (peaks[0] + peaks[1] + peaks[2]) / 3;
+
+    // Each channel is shifted by its own offset, so each gets a table of corrected values
+    int[] offsets = new int[3];
+    int[][] tables = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      offsets[k] = peaks[k] - avgPeak;
+      for (int value = 0; value < 256; value++) {
+        tables[k][value] = clamp(value + offsets[k]);
       }
     }
 
-    return new SnapImpl(originalPixels);
+    int corrected = Math.min(width, splitPoint);
+    int[][][] newPixels = new int[height][width][];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[][] sourceRow = originalPixels[i];
+      int[][] row = newPixels[i];
+      for (int j = 0; j < corrected; j++) {
+        int[] pixel = sourceRow[j];
+        int[] result = new int[3];
+        for (int k = 0; k < 3; k++) {
+          int value = pixel[k];
+          result[k] = value >= 0 && value < 256 ? tables[k][value] : clamp(value + offsets[k]);
+        }
+        row[j] = result;
+      }
+      System.arraycopy(sourceRow, corrected, row, corrected, width - corrected);
+    });
+
+    return new SnapImpl(newPixels);
   }
 
 
@@ -442,21 +537,164 @@ public class SnapEffectsImpl implements SnapEffects {
     int width = snap.getSnapWidth();
     int height = snap.getSnapHeight();
     int[][][] originalPixels = snap.getSnap();
-    int[][][] newPixels = new int[height][width][3];
+    int[][][] newPixels = new int[height][width][];
 
     int splitPoint = percentage.length > 0 ? (width * percentage[0]) / 100 : width;
+    int adjusted = Math.max(0, Math.min(width, splitPoint));
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (j < splitPoint) {
-          newPixels[i][j][0] = clamp(fittingProcess(black, mid, white, originalPixels[i][j][0]));
-          newPixels[i][j][1] = clamp(fittingProcess(black, mid, white, originalPixels[i][j][1]));
-          newPixels[i][j][2] = clamp(fittingProcess(black, mid, white, originalPixels[i][j][2]));
-        } else {
-          newPixels[i][j] = snap.getPixelValue(i, j);
-        }
+    // The curve only depends on the levels, so it is worked out once for every value
+    int[] table = new int[256];
+    for (int value = 0; value < 256; value++) {
+      table[value] = clamp(fittingProcess(black, mid, white, value));
+    }
+
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[][] sourceRow = originalPixels[i];
+      int[][] row = newPixels[i];
+      for (int j = 0; j < adjusted; j++) {
+        int[] pixel = sourceRow[j];
+        row[j] = new int[]{
+            levelsValue(table, pixel[0], black, mid, white),
+            levelsValue(table, pixel[1], black, mid, white),
+            levelsValue(table, pixel[2], black, mid, white)};
+      }
+      System.arraycopy(sourceRow, adjusted, row, adjusted, width - adjusted);
+    });
+
+    return new SnapImpl(newPixels);
+  }
+
+  /**
+   * Looks up the adjusted value of a channel in the levels table, falling back to the curve
+   * itself for values outside 0 to 255.
+   *
+   * @param table  The adjusted value of every value from 0 to 255.
+   * @param signal The value to adjust.
+   * @param black  The black level.
+   * @param mid    The mid level.
+   * @param white  The white level.
+   * @return The adjusted value.
+   */
+  private int levelsValue(int[] table, int signal, int black, int mid, int white) {
+    if (signal >= 0 && signal < 256) {
+      return table[signal];
+    }
+    return clamp(fittingProcess(black, mid, white, signal));
+  }
+
+  /**
+   * Stretches each channel so that the values between its clipped darkest and brightest ends
+   * span 0 to 255. The ends are found from the cumulative histogram of the whole image, and
+   * the stretch is then applied as a table to the selected pixels.
+   *
+   * @param snap            The Snap object representing the image.
+   * @param clipPercentage  The percentage of pixels at each end of a channel to ignore.
+   * @param mask            An optional mask selecting the pixels to change.
+   * @param splitPercentage An optional percentage of the width to apply the adjustment to.
+   * @return A new Snap object with the levels adjusted.
+   */
+  @Override
+  public Snap autoLevels(Snap snap, double clipPercentage, Mask mask, int... splitPercentage) {
+    if (!(clipPercentage >= 0 && clipPercentage < 50)) {
+      throw new IllegalArgumentException("Clip percentage must be at least 0 and below 50");
+    }
+    int[][] frequencies = snap.getStatistics().getFrequencies();
+    long total = (long) snap.getSnapWidth() * snap.getSnapHeight();
+    long clipped = (long) (total * clipPercentage / 100);
+
+    int[][] tables = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      // The darkest value with more than the clipped count at or below it, and the same from
+      // the bright end
+      int low = 0;
+      long below = frequencies[k][0];
+      while (low < 255 && below <= clipped) {
+        below += frequencies[k][++low];
+      }
+      int high = 255;
+      long above = frequencies[k][255];
+      while (high > 0 && above <= clipped) {
+        above += frequencies[k][--high];
+      }
+
+      for (int value = 0; value < 256; value++) {
+        tables[k][value] = high > low ? clamp((value - low) * 255 / (high - low)) : value;
       }
     }
+    return applyTables(snap, tables, mask, splitPercentage);
+  }
+
+  /**
+   * Equalizes each channel by mapping each value through the cumulative histogram of the whole
+   * image, then applies the mapping as a table to the selected pixels.
+   *
+   * @param snap            The Snap object representing the image.
+   * @param mask            An optional mask selecting the pixels to change.
+   * @param splitPercentage An optional percentage of the width to apply the adjustment to.
+   * @return A new Snap object with the histogram equalized.
+   */
+  @Override
+  public Snap equalize(Snap snap, Mask mask, int... splitPercentage) {
+    int[][] frequencies = snap.getStatistics().getFrequencies();
+    long total = (long) snap.getSnapWidth() * snap.getSnapHeight();
+
+    int[][] tables = new int[3][256];
+    for (int k = 0; k < 3; k++) {
+      // The count of the darkest value present maps to 0
+      long lowest = 0;
+      for (int value = 0; value < 256 && lowest == 0; value++) {
+        lowest = frequencies[k][value];
+      }
+      long cumulative = 0;
+      for (int value = 0; value < 256; value++) {
+        cumulative += frequencies[k][value];
+        tables[k][value] = total > lowest
+                ? clamp((int) Math.round((cumulative - lowest) * 255.0 / (total - lowest)))
+                : value;
+      }
+    }
+    return applyTables(snap, tables, mask, splitPercentage);
+  }
+
+  /**
+   * Maps each channel of the selected pixels through its own table, sharing the unselected
+   * pixels with the input. Rows are processed in parallel.
+   *
+   * @param snap            The Snap object representing the image.
+   * @param tables          The new value of every value from 0 to 255, for each channel.
+   * @param mask            An optional mask selecting the pixels to change.
+   * @param splitPercentage An optional percentage of the width to apply the tables to.
+   * @return A new Snap object with the tables applied.
+   * @throws IllegalArgumentException if the split percentage is out of range.
+   */
+  private Snap applyTables(Snap snap, int[][] tables, Mask mask, int... splitPercentage) {
+    int width = snap.getSnapWidth();
+    int height = snap.getSnapHeight();
+    int[][][] originalPixels = snap.getSnap();
+
+    int splitPoint = width;
+    if (splitPercentage.length > 0) {
+      if (splitPercentage[0] > 100 || splitPercentage[0] < 0) {
+        throw new IllegalArgumentException("splitPercentage > 100");
+      }
+      splitPoint = (width * splitPercentage[0]) / 100;
+    }
+    int limit = splitPoint;
+
+    int[][][] newPixels = new int[height][width][];
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[][] sourceRow = originalPixels[i];
+      int[][] row = newPixels[i];
+      System.arraycopy(sourceRow, 0, row, 0, width);
+      int[] spans = MaskSpans.getSelectedSpans(mask, i, limit);
+      for (int s = 0; s < spans.length; s += 2) {
+        for (int j = spans[s]; j < spans[s + 1]; j++) {
+          int[] pixel = sourceRow[j];
+          row[j] = new int[]{tables[0][clamp(pixel[0])], tables[1][clamp(pixel[1])],
+              tables[2][clamp(pixel[2])]};
+        }
+      }
+    });
 
     return new SnapImpl(newPixels);
   }
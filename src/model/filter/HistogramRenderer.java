@@ -0,0 +1,178 @@
+package model.filter;
+
+/**
+ * The HistogramRenderer class draws histograms straight into pixel buffers. The white background
+ * and grey grid are drawn into a template that is copied for every histogram, and the line
+ * graph of each channel is then written over it pixel by pixel, so no AWT image or graphics
+ * context is involved. Only the template of the default 256x256 size is kept; other sizes are
+ * drawn each time, so sizes chosen by the user never build up in memory.
+ *
+ * <p>The graph is laid out as HistogramGeneratorImpl draws it: value v sits at column
+ * v * (width - 1) / 255, and a count sits at height - count * height / maxFrequency, where
+ * maxFrequency is the largest count of any channel. Red is drawn first, then green, then blue.
+ */
+public class HistogramRenderer {
+
+  private static final int WHITE = 0xFFFFFF;
+  private static final int GRAY = 0x808080;
+  private static final int[] CHANNEL_COLORS = {0xFF0000, 0x00FF00, 0x0000FF};
+  // The spacing of the grid lines in pixels.
+  private static final int GRID_SPACING = 10;
+  // The size of the histograms drawn when no size is given.
+  private static final int DEFAULT_SIZE = 256;
+  // The most pixels a histogram may have, 4096x4096.
+  private static final int MAX_PIXELS = 1 << 24;
+  // The background of the default size, drawn the first time it is needed.
+  private static volatile int[] defaultTemplate;
+
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructs a renderer for histograms of the given size.
+   *
+   * @param width  the width of the histogram in pixels.
+   * @param height the height of the histogram in pixels.
+   * @throws IllegalArgumentException if either side is not positive, or the histogram would
+   *                                  have more than 4096x4096 pixels.
+   */
+  public HistogramRenderer(int width, int height) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Histogram size must be positive");
+    }
+    if ((long) width * height > MAX_PIXELS) {
+      throw new IllegalArgumentException("Histogram size too large: " + width + "x" + height);
+    }
+    this.width = width;
+    this.height = height;
+  }
+
+  /**
+   * Renders the histograms of the three channels as packed RGB values, one int per pixel
+   * stored row by row.
+   *
+   * @param frequencies the 256 value counts of the red, green and blue channels.
+   * @return the packed pixels of the histogram.
+   */
+  public int[] renderPacked(int[][] frequencies) {
+    int[] pixels = newBackground();
+    int maxFrequency = 0;
+    for (int[] channel : frequencies) {
+      for (int count : channel) {
+        maxFrequency = Math.max(maxFrequency, count);
+      }
+    }
+    if (maxFrequency == 0) {
+      return pixels;
+    }
+
+    for (int k = 0; k < frequencies.length; k++) {
+      int[] channel = frequencies[k];
+      int previousX = 0;
+      int previousY = height;
+      for (int value = 0; value < channel.length; value++) {
+        int x = value * (width - 1) / 255;
+        int y = height - (int) ((long) channel[value] * height / maxFrequency);
+        if (value > 0) {
+          drawLine(pixels, previousX, previousY, x, y, CHANNEL_COLORS[k]);
+        }
+        previousX = x;
+        previousY = y;
+      }
+    }
+    return pixels;
+  }
+
+  /**
+   * Renders the histograms of the three channels as RGB pixel data.
+   *
+   * @param frequencies the 256 value counts of the red, green and blue channels.
+   * @return a 3D array holding the RGB pixel data of the histogram.
+   */
+  public int[][][] render(int[][] frequencies) {
+    int[] packed = renderPacked(frequencies);
+    int[][][] output = new int[height][width][];
+    int index = 0;
+    for (int i = 0; i < height; i++) {
+      int[][] row = output[i];
+      for (int j = 0; j < width; j++) {
+        int color = packed[index++];
+        row[j] = new int[]{(color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF};
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Gets a new background of this size to draw a histogram on. The background of the default
+   * size is drawn once and copied; any other size is drawn on every call.
+   *
+   * @return the packed pixels of the background.
+   */
+  private int[] newBackground() {
+    if (width != DEFAULT_SIZE || height != DEFAULT_SIZE) {
+      return drawTemplate();
+    }
+    int[] template = defaultTemplate;
+    if (template == null) {
+      // Drawing it twice in a race is harmless, since both copies are the same
+      template = drawTemplate();
+      defaultTemplate = template;
+    }
+    return template.clone();
+  }
+
+  /**
+   * Draws the white background and grey grid of this size.
+   *
+   * @return the packed pixels of the background.
+   */
+  private int[] drawTemplate() {
+    int[] template = new int[width * height];
+    for (int i = 0; i < height; i++) {
+      boolean gridRow = i % GRID_SPACING == 0;
+      for (int j = 0; j < width; j++) {
+        template[i * width + j] = gridRow || j % GRID_SPACING == 0 ? GRAY : WHITE;
+      }
+    }
+    return template;
+  }
+
+  /**
+   * Draws a one pixel wide line between two points with Bresenham's algorithm, leaving out any
+   * part of it that falls outside the histogram.
+   *
+   * @param pixels the packed pixels to draw into.
+   * @param x0     the column of the first point.
+   * @param y0     the row of the first point.
+   * @param x1     the column of the second point.
+   * @param y1     the row of the second point.
+   * @param color  the packed RGB color of the line.
+   */
+  private void drawLine(int[] pixels, int x0, int y0, int x1, int y1, int color) {
+    int dx = Math.abs(x1 - x0);
+    int dy = -Math.abs(y1 - y0);
+    int stepX = x0 < x1 ? 1 : -1;
+    int stepY = y0 < y1 ? 1 : -1;
+    int error = dx + dy;
+    int x = x0;
+    int y = y0;
+    while (true) {
+      if (x >= 0 && x < width && y >= 0 && y < height) {
+        pixels[y * width + x] = color;
+      }
+      if (x == x1 && y == y1) {
+        return;
+      }
+      int doubled = 2 * error;
+      if (doubled >= dy) {
+        error += dy;
+        x += stepX;
+      }
+      if (doubled <= dx) {
+        error += dx;
+        y += stepY;
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package model.filter;
 
 import model.Snap;
+import model.mask.Mask;
 
 /**
  * Interface representing a filter for manipulating images (Snap objects).
@@ -15,9 +16,10 @@ public interface SnapFilter {
    *
    * @param snap   the Snap object representing the image to be filtered
    * @param filter a 2D array representing the convolution filter matrix
+   * @param mask   an optional mask selecting the pixels to filter; null filters every pixel
    * @return a new Snap object with the filter applied
    */
-  Snap applyFilter(Snap snap, double[][] filter,Snap mask, int... percentage);
+  Snap applyFilter(Snap snap, double[][] filter, Mask mask, int... percentage);
 
   /**
    * Adjusts the brightness or other scalar properties of the given image (Snap).
@@ -1,7 +1,10 @@
 package model.filter;
 
+import model.SingleChannelSnap;
 import model.Snap;
 import model.SnapImpl;
+import model.mask.Mask;
+import model.mask.MaskSpans;
 
 /**
  * This class implements the SnapFilter interface and provides methods for applying various filters
@@ -12,15 +15,19 @@ public class SnapFilterImpl implements SnapFilter {
 
   /**
    * Applies a filter, such as blur or sharpen, to the given snap. The method uses helper functions
-   * to extract a kernel around each pixel and apply the filter to that kernel.
+   * to extract a kernel around each pixel and apply the filter to that kernel. Each row is walked
+   * run by run: selected runs are filtered and the pixels between them are copied in bulk. The
+   * copied pixels are shared with the source snap and never written to; only the new pixels of
+   * the selected runs are clamped.
    *
    * @param snap   the snap to which the filter will be applied.
    * @param filter the matrix representing the filter to be applied (e.g., blur or sharpen).
+   * @param mask   an optional mask selecting the pixels to filter.
    * @return a new Snap object with the filtered pixels.
    * @throws IllegalArgumentException if the filter does not have odd dimensions.
    */
   @Override
-  public Snap applyFilter(Snap snap, double[][] filter, Snap mask, int... percentage)
+  public Snap applyFilter(Snap snap, double[][] filter, Mask mask, int... percentage)
           throws IllegalArgumentException {
     if (filter.length % 2 == 0) {
       throw new IllegalArgumentException("Error: given filter must have odd dimensions");
@@ -31,30 +38,32 @@ public class SnapFilterImpl implements SnapFilter {
 
     int width = snap.getSnapWidth();
     int height = snap.getSnapHeight();
-    int[][][] newSnap = new int[height][width][3];
-
-    int[][][] maskData = mask != null ? mask.getSnap() : null;
+    int[][][] snapData = snap.getSnap();
+    int[][][] newSnap = new int[height][width][];
 
     // Determine split point if percentage is provided, otherwise apply to the entire image
     int splitPoint = percentage.length > 0 ? (width * percentage[0]) / 100 : width;
+    int limit = Math.min(splitPoint, width);
 
-    // Apply the filter to each pixel
+    // Apply the filter to each selected run of pixels
     for (int row = 0; row < height; row++) {
-      for (int column = 0; column < width; column++) {
-        boolean withinSplit = column < splitPoint;
-        boolean applyToPixel = maskData == null || maskData[row][column][0] == 0;
-
-        if (withinSplit && applyToPixel) {
-          // Apply filter to the pixel
-          newSnap[row][column] =
-                  createNewPixel(getKernel(row, column, snap.getSnap(), filter.length), filter);
-        } else {
-          newSnap[row][column] = snap.getPixelValue(row, column);
+      int[][] sourceRow = snapData[row];
+      int[][] newRow = newSnap[row];
+      int[] spans = MaskSpans.getSelectedSpans(mask, row, limit);
+      int column = 0;
+
+      for (int k = 0; k < spans.length; k += 2) {
+        // Pixels before the run are left unchanged
+        System.arraycopy(sourceRow, column, newRow, column, spans[k] - column);
+        for (column = spans[k]; column < spans[k + 1]; column++) {
+          newRow[column] = clamp(
+                  createNewPixel(getKernel(row, column, snapData, filter.length), filter));
         }
       }
+      System.arraycopy(sourceRow, column, newRow, column, width - column);
     }
 
-    return new SnapImpl(clamp(newSnap));
+    return new SnapImpl(newSnap);
   }
 
   /**
@@ -81,7 +90,8 @@ public class SnapFilterImpl implements SnapFilter {
   }
 
   /**
-   * Splits the snap into three separate color channels: red, green, and blue.
+   * Splits the snap into three separate color channels: red, green, and blue. Each channel is
+   * stored as a single-channel image tinted with its color.
    *
    * @param snap the snap to be split.
    * @return an array of Snap objects, each representing one color channel.
@@ -93,26 +103,26 @@ public class SnapFilterImpl implements SnapFilter {
     int height = snap.getSnapHeight();
     int[][][] originalPixels = snap.getSnap();
 
-    int[][][] redChannel = new int[height][width][3];
-    int[][][] greenChannel = new int[height][width][3];
-    int[][][] blueChannel = new int[height][width][3];
+    byte[] redChannel = new byte[width * height];
+    byte[] greenChannel = new byte[width * height];
+    byte[] blueChannel = new byte[width * height];
 
     // Split each pixel's color channels
+    int index = 0;
     for (int row = 0; row < height; row++) {
       for (int column = 0; column < width; column++) {
-        int redValue = originalPixels[row][column][0];
-        int greenValue = originalPixels[row][column][1];
-        int blueValue = originalPixels[row][column][2];
-
-        redChannel[row][column][0] = redValue;
-        greenChannel[row][column][1] = greenValue;
-        blueChannel[row][column][2] = blueValue;
+        int[] pixel = originalPixels[row][column];
+        redChannel[index] = (byte) pixel[0];
+        greenChannel[index] = (byte) pixel[1];
+        blueChannel[index] = (byte) pixel[2];
+        index++;
       }
     }
 
-    Snap redSnap = new SnapImpl(redChannel);
-    Snap greenSnap = new SnapImpl(greenChannel);
-    Snap blueSnap = new SnapImpl(blueChannel);
+    Snap redSnap = new SingleChannelSnap(redChannel, width, height, SingleChannelSnap.Tint.RED);
+    Snap greenSnap =
+            new SingleChannelSnap(greenChannel, width, height, SingleChannelSnap.Tint.GREEN);
+    Snap blueSnap = new SingleChannelSnap(blueChannel, width, height, SingleChannelSnap.Tint.BLUE);
 
     return new Snap[]{redSnap, greenSnap, blueSnap};
   }
@@ -216,6 +226,19 @@ public class SnapFilterImpl implements SnapFilter {
     return snap;
   }
 
+  /**
+   * Clamps the values of a single pixel to the valid range (0-255), in place.
+   *
+   * @param pixel the pixel to be clamped.
+   * @return the same pixel, clamped.
+   */
+  private int[] clamp(int[] pixel) {
+    for (int k = 0; k < 3; k++) {
+      pixel[k] = Math.max(0, Math.min(255, pixel[k]));
+    }
+    return pixel;
+  }
+
   /**
    * Adjusts the brightness of a pixel by adding the adjustment value to the pixel's color values.
    *
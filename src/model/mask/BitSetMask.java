@@ -0,0 +1,103 @@
+package model.mask;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import model.Snap;
+
+/**
+ * The BitSetMask class is a Mask that stores one bit per pixel. It can describe any selection
+ * and is the form mask images are converted to: a pixel whose red channel is 0 (black) is
+ * selected, any other pixel is not.
+ */
+public class BitSetMask implements Mask {
+
+  private static final int[] NO_SPANS = new int[0];
+
+  private final BitSet bits;
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructs a BitSetMask from the pixel data of a mask image. Only the red channel of each
+   * pixel is read.
+   *
+   * @param maskImage a 3D array holding the RGB values of the mask image.
+   * @throws IllegalArgumentException if the mask image is null or empty.
+   */
+  public BitSetMask(int[][][] maskImage) throws IllegalArgumentException {
+    if (maskImage == null || maskImage.length == 0 || maskImage[0].length == 0) {
+      throw new IllegalArgumentException("Invalid mask image provided");
+    }
+    this.height = maskImage.length;
+    this.width = maskImage[0].length;
+    this.bits = new BitSet(width * height);
+
+    for (int row = 0; row < height; row++) {
+      int[][] maskRow = maskImage[row];
+      for (int column = 0; column < width; column++) {
+        if (maskRow[column][0] == 0) {
+          bits.set(row * width + column);
+        }
+      }
+    }
+  }
+
+  /**
+   * Constructs a BitSetMask from a mask image.
+   *
+   * @param maskImage the Snap holding the mask image.
+   * @throws IllegalArgumentException if the mask image is null or empty.
+   */
+  public BitSetMask(Snap maskImage) throws IllegalArgumentException {
+    this(maskImage == null ? null : maskImage.getSnap());
+  }
+
+  @Override
+  public int getMaskWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getMaskHeight() {
+    return this.height;
+  }
+
+  @Override
+  public boolean isMasked(int row, int column) {
+    if (row < 0 || row >= height || column < 0 || column >= width) {
+      return false;
+    }
+    return bits.get(row * width + column);
+  }
+
+  /**
+   * Gets the selected runs of a row by scanning the set bits of that row. The runs are worked
+   * out on every call; use a SpanMask to keep them.
+   *
+   * @param row the row to get the runs of.
+   * @return the selected runs of the row as [start, end) column pairs.
+   */
+  @Override
+  public int[] getRowSpans(int row) {
+    if (row < 0 || row >= height) {
+      return NO_SPANS;
+    }
+    int rowStart = row * width;
+    int rowEnd = rowStart + width;
+    int[] buffer = null;
+    int count = 0;
+
+    int start = bits.nextSetBit(rowStart);
+    while (start >= 0 && start < rowEnd) {
+      int end = Math.min(bits.nextClearBit(start), rowEnd);
+      if (buffer == null) {
+        buffer = new int[width + 1];
+      }
+      buffer[count++] = start - rowStart;
+      buffer[count++] = end - rowStart;
+      start = bits.nextSetBit(end);
+    }
+    return count == 0 ? NO_SPANS : Arrays.copyOf(buffer, count);
+  }
+}
@@ -0,0 +1,43 @@
+package model.mask;
+
+/**
+ * This interface defines a selection mask over an image. A mask tells the image operations which
+ * pixels they should be applied to; every other pixel is copied through unchanged. Masks only
+ * store the selection, not colors, so they are much smaller than the mask image they describe.
+ */
+public interface Mask {
+
+  /**
+   * Gets the width of the area covered by this mask.
+   *
+   * @return the width of the mask in pixels.
+   */
+  int getMaskWidth();
+
+  /**
+   * Gets the height of the area covered by this mask.
+   *
+   * @return the height of the mask in pixels.
+   */
+  int getMaskHeight();
+
+  /**
+   * Checks whether the pixel at the given coordinates is selected by this mask. Coordinates
+   * outside the mask are never selected.
+   *
+   * @param row    the row of the pixel.
+   * @param column the column of the pixel.
+   * @return true if an operation should be applied to the pixel, false otherwise.
+   */
+  boolean isMasked(int row, int column);
+
+  /**
+   * Gets the selected runs of a row, so that operations can process whole runs at a time
+   * instead of testing every pixel. The runs are stored as consecutive [start, end) column
+   * pairs in increasing order. The returned array may be shared and must not be modified.
+   *
+   * @param row the row to get the runs of.
+   * @return the selected runs of the row, empty if the row has none or is outside the mask.
+   */
+  int[] getRowSpans(int row);
+}
@@ -0,0 +1,201 @@
+package model.mask;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import model.Snap;
+import model.SnapStatistics;
+
+/**
+ * The MaskSnap class is the black and white image of a Mask: selected pixels are black
+ * (0,0,0) and every other pixel is white (255,255,255). Only the mask is stored, so a mask
+ * image takes no more memory than its selection.
+ *
+ * <p>The RGB array form of the image is only built the first time it is asked for, for
+ * example when the image is saved. It must not be written to, since the mask would no longer
+ * describe it.
+ */
+public class MaskSnap implements Snap {
+
+  private static final int[] BLACK = {0, 0, 0};
+  private static final int[] WHITE = {255, 255, 255};
+
+  private final Mask mask;
+  // The RGB form of the image, built when first needed.
+  private volatile int[][][] expanded;
+  // The statistics of the image, computed when first needed.
+  private volatile SnapStatistics statistics;
+
+  /**
+   * Constructs the image of a mask.
+   *
+   * @param mask the mask the image shows.
+   * @throws IllegalArgumentException if the mask is null or covers no pixels.
+   */
+  public MaskSnap(Mask mask) throws IllegalArgumentException {
+    if (mask == null || mask.getMaskWidth() <= 0 || mask.getMaskHeight() <= 0) {
+      throw new IllegalArgumentException("Invalid mask provided");
+    }
+    this.mask = mask;
+  }
+
+  /**
+   * Checks whether an image is exactly the black and white image of a mask, so that it can be
+   * replaced by a MaskSnap without losing anything.
+   *
+   * @param image the image to check.
+   * @param mask  the mask built from the image.
+   * @return true if every selected pixel is black, every other pixel is white, and the image
+   *         is the size of the mask.
+   */
+  public static boolean isImageOf(Snap image, Mask mask) {
+    int height = image.getSnapHeight();
+    int width = image.getSnapWidth();
+    if (height != mask.getMaskHeight() || width != mask.getMaskWidth()) {
+      return false;
+    }
+    int[][][] pixels = image.getSnap();
+    for (int row = 0; row < height; row++) {
+      int[][] pixelRow = pixels[row];
+      for (int column = 0; column < width; column++) {
+        int[] pixel = pixelRow[column];
+        int value = mask.isMasked(row, column) ? 0 : 255;
+        if (pixel[0] != value || pixel[1] != value || pixel[2] != value) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the mask this image shows.
+   *
+   * @return the mask.
+   */
+  public Mask getMask() {
+    return this.mask;
+  }
+
+  /**
+   * Returns the pixel data of the image in RGB format, building it on the first call.
+   *
+   * @return the 3D array containing the pixel data.
+   */
+  @Override
+  public int[][][] getSnap() {
+    int[][][] snap = expanded;
+    if (snap == null) {
+      synchronized (this) {
+        snap = expanded;
+        if (snap == null) {
+          snap = expand();
+          expanded = snap;
+        }
+      }
+    }
+    return snap;
+  }
+
+  @Override
+  public int getSnapHeight() {
+    return mask.getMaskHeight();
+  }
+
+  @Override
+  public int getSnapWidth() {
+    return mask.getMaskWidth();
+  }
+
+  /**
+   * Retrieves the RGB values of a pixel, working them out from the mask unless the array form
+   * of the image has been built.
+   *
+   * @param x the row of the pixel.
+   * @param y the column of the pixel.
+   * @return an array holding the RGB values of the pixel.
+   */
+  @Override
+  public int[] getPixelValue(int x, int y) {
+    if (x < 0 || x >= getSnapHeight() || y < 0 || y >= getSnapWidth()) {
+      throw new ArrayIndexOutOfBoundsException("Coordinates out of bounds");
+    }
+    int[][][] snap = expanded;
+    if (snap != null) {
+      return snap[x][y];
+    }
+    return (mask.isMasked(x, y) ? BLACK : WHITE).clone();
+  }
+
+  /**
+   * Returns the statistics of the image, computing them on the first call. They are counted
+   * from a packed copy of the image that is dropped afterwards, so the array form is not built.
+   *
+   * @return the statistics of the image.
+   */
+  @Override
+  public SnapStatistics getStatistics() {
+    SnapStatistics result = statistics;
+    if (result == null) {
+      synchronized (this) {
+        result = statistics;
+        if (result == null) {
+          result = expanded == null
+                  ? SnapStatistics.compute(pack(), getSnapWidth(), getSnapHeight())
+                  : SnapStatistics.compute(this);
+          statistics = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void invalidateStatistics() {
+    statistics = null;
+  }
+
+  /**
+   * Builds the RGB form of the image, filling the selected runs of each row with black.
+   *
+   * @return a new 3D array holding the RGB pixel data.
+   */
+  private int[][][] expand() {
+    int height = getSnapHeight();
+    int width = getSnapWidth();
+    int[][][] snap = new int[height][width][];
+    for (int row = 0; row < height; row++) {
+      int[][] snapRow = snap[row];
+      for (int column = 0; column < width; column++) {
+        snapRow[column] = WHITE.clone();
+      }
+      int[] spans = mask.getRowSpans(row);
+      for (int k = 0; k < spans.length; k += 2) {
+        for (int column = spans[k]; column < spans[k + 1]; column++) {
+          snapRow[column] = BLACK.clone();
+        }
+      }
+    }
+    return snap;
+  }
+
+  /**
+   * Packs the image into RGB bytes, three per pixel stored row by row.
+   *
+   * @return a buffer holding the packed pixels.
+   */
+  private ByteBuffer pack() {
+    int height = getSnapHeight();
+    int rowLength = getSnapWidth() * 3;
+    byte[] packed = new byte[height * rowLength];
+    for (int row = 0; row < height; row++) {
+      int start = row * rowLength;
+      Arrays.fill(packed, start, start + rowLength, (byte) 255);
+      int[] spans = mask.getRowSpans(row);
+      for (int k = 0; k < spans.length; k += 2) {
+        Arrays.fill(packed, start + spans[k] * 3, start + spans[k + 1] * 3, (byte) 0);
+      }
+    }
+    return ByteBuffer.wrap(packed);
+  }
+}
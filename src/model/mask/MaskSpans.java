@@ -0,0 +1,48 @@
+package model.mask;
+
+import java.util.Arrays;
+
+/**
+ * The MaskSpans class holds helpers for walking the selected runs of a mask row by row. Image
+ * operations use it to apply their work to whole runs of selected pixels and to copy the
+ * pixels between runs through in bulk.
+ */
+public class MaskSpans {
+
+  private static final int[] NO_SPANS = new int[0];
+
+  /**
+   * Gets the runs of a row that an operation should be applied to, cut off at the given column.
+   * A null mask selects every pixel, so the whole row up to the limit is a single run.
+   *
+   * @param mask  the mask selecting the pixels, or null to select every pixel.
+   * @param row   the row to get the runs of.
+   * @param limit the first column that must not be selected, such as a split point or the
+   *              width of the image.
+   * @return the selected runs as [start, end) column pairs in increasing order.
+   */
+  public static int[] getSelectedSpans(Mask mask, int row, int limit) {
+    if (limit <= 0) {
+      return NO_SPANS;
+    }
+    if (mask == null) {
+      return new int[]{0, limit};
+    }
+
+    int[] spans = mask.getRowSpans(row);
+    int count = spans.length;
+    while (count > 0 && spans[count - 2] >= limit) {
+      count -= 2;
+    }
+    if (count == 0) {
+      return NO_SPANS;
+    }
+    if (count == spans.length && spans[count - 1] <= limit) {
+      return spans;
+    }
+
+    int[] clipped = Arrays.copyOf(spans, count);
+    clipped[count - 1] = Math.min(clipped[count - 1], limit);
+    return clipped;
+  }
+}
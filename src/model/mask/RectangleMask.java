@@ -0,0 +1,66 @@
+package model.mask;
+
+/**
+ * The RectangleMask class is a Mask that selects a single axis-aligned rectangle. It stores
+ * only the rectangle's bounds, so its size does not depend on the size of the image.
+ */
+public class RectangleMask implements Mask {
+
+  private static final int[] NO_SPANS = new int[0];
+
+  private final int width;
+  private final int height;
+  private final int rowStart;
+  private final int rowEnd;
+  private final int columnStart;
+  private final int columnEnd;
+  // The single run shared by every row inside the rectangle.
+  private final int[] spans;
+
+  /**
+   * Constructs a RectangleMask selecting the given rectangle of an image. Parts of the rectangle
+   * that fall outside the image are ignored.
+   *
+   * @param width      the width of the image the mask covers.
+   * @param height     the height of the image the mask covers.
+   * @param xStart     the column of the top-left corner of the rectangle.
+   * @param yStart     the row of the top-left corner of the rectangle.
+   * @param maskWidth  the width of the rectangle.
+   * @param maskHeight the height of the rectangle.
+   * @throws IllegalArgumentException if any of the values are negative.
+   */
+  public RectangleMask(int width, int height, int xStart, int yStart,
+                       int maskWidth, int maskHeight) throws IllegalArgumentException {
+    if (width < 0 || height < 0 || xStart < 0 || yStart < 0
+            || maskWidth < 0 || maskHeight < 0) {
+      throw new IllegalArgumentException("Mask dimensions must not be negative");
+    }
+    this.width = width;
+    this.height = height;
+    this.rowStart = Math.min(yStart, height);
+    this.rowEnd = (int) Math.min((long) yStart + maskHeight, height);
+    this.columnStart = Math.min(xStart, width);
+    this.columnEnd = (int) Math.min((long) xStart + maskWidth, width);
+    this.spans = columnStart < columnEnd ? new int[]{columnStart, columnEnd} : NO_SPANS;
+  }
+
+  @Override
+  public int getMaskWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getMaskHeight() {
+    return this.height;
+  }
+
+  @Override
+  public boolean isMasked(int row, int column) {
+    return row >= rowStart && row < rowEnd && column >= columnStart && column < columnEnd;
+  }
+
+  @Override
+  public int[] getRowSpans(int row) {
+    return row >= rowStart && row < rowEnd ? spans : NO_SPANS;
+  }
+}
@@ -0,0 +1,83 @@
+package model.mask;
+
+import java.util.Arrays;
+
+/**
+ * The SpanMask class is a run-length encoded Mask. For each row it keeps the list of selected
+ * runs as [start, end) column pairs, which makes masks made of a few large regions very small.
+ * The runs are worked out once when the mask is built and handed out as they are afterwards.
+ */
+public class SpanMask implements Mask {
+
+  private static final int[] NO_SPANS = new int[0];
+
+  // For each row, the selected runs stored as consecutive start and end columns.
+  private final int[][] rowSpans;
+  private final int width;
+  private final int height;
+
+  /**
+   * Constructs a SpanMask holding the same selection as the given mask.
+   *
+   * @param mask the mask to encode.
+   * @throws IllegalArgumentException if the mask is null.
+   */
+  public SpanMask(Mask mask) throws IllegalArgumentException {
+    if (mask == null) {
+      throw new IllegalArgumentException("Mask cannot be null");
+    }
+    this.width = mask.getMaskWidth();
+    this.height = mask.getMaskHeight();
+    this.rowSpans = new int[height][];
+
+    for (int row = 0; row < height; row++) {
+      int[] spans = mask.getRowSpans(row);
+      rowSpans[row] = spans.length == 0 ? NO_SPANS : Arrays.copyOf(spans, spans.length);
+    }
+  }
+
+  /**
+   * Constructs a SpanMask from the pixel data of a mask image, where black pixels are selected.
+   *
+   * @param maskImage a 3D array holding the RGB values of the mask image.
+   * @throws IllegalArgumentException if the mask image is null or empty.
+   */
+  public SpanMask(int[][][] maskImage) throws IllegalArgumentException {
+    this(new BitSetMask(maskImage));
+  }
+
+  @Override
+  public int getMaskWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getMaskHeight() {
+    return this.height;
+  }
+
+  @Override
+  public boolean isMasked(int row, int column) {
+    if (row < 0 || row >= height) {
+      return false;
+    }
+    int[] spans = rowSpans[row];
+    for (int k = 0; k < spans.length; k += 2) {
+      if (column < spans[k]) {
+        return false;
+      }
+      if (column < spans[k + 1]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int[] getRowSpans(int row) {
+    if (row < 0 || row >= height) {
+      return NO_SPANS;
+    }
+    return rowSpans[row];
+  }
+}
@@ -1,6 +1,7 @@
 package model.transform;
 
 import model.Snap;
+import model.mask.Mask;
 
 /**
  * The SnapTransformation interface defines a contract for applying various transformations to
@@ -16,12 +17,14 @@ public interface SnapTransformation {
    * @param snap       The Snap image to which the transformation will be applied.
    * @param matrix     A 2D array representing the transformation matrix that determines the nature
    *                   of the transformation.
+   * @param mask       An optional mask selecting the pixels to transform; null transforms every
+   *                   pixel.
    * @param percentage Optional additional parameters such as a percentage value to
    *                   adjust the intensity
    *                   of the transformation if applicable.
    * @return A new Snap instance with the specified transformation applied.
    */
-  Snap applyTransformation(Snap snap, double[][] matrix,Snap mask, int... percentage);
+  Snap applyTransformation(Snap snap, double[][] matrix, Mask mask, int... percentage);
 
   /**
    * Flips the given Snap image along its vertical axis, effectively creating a mirror image
@@ -49,14 +52,54 @@ public interface SnapTransformation {
    *
    * @param snap      The Snap image from which the color component will be extracted.
    * @param component A string indicating the color component to extract.
+   * @param mask      An optional mask selecting the pixels to extract from; null selects every
+   *                  pixel.
    * @return A new Snap instance where only the specified color component is retained.
    * @throws IllegalArgumentException if the specified component is invalid or unsupported.
    */
-  Snap extractColorComponent(Snap snap, String component,Snap mask) throws IllegalArgumentException;
+  Snap extractColorComponent(Snap snap, String component, Mask mask)
+          throws IllegalArgumentException;
+
+  /**
+   * Extracts several color components from the given Snap image in a single pass over its
+   * pixels. The supported components are the same as for extractColorComponent. Without a mask
+   * each component is returned as a single-channel image; with a mask, the unselected pixels
+   * keep their original colors and the components are returned in RGB.
+   *
+   * @param snap       The Snap image from which the components will be extracted.
+   * @param mask       An optional mask selecting the pixels to extract from; null selects every
+   *                   pixel.
+   * @param components The names of the components to extract.
+   * @return the extracted components, in the same order as their names.
+   * @throws IllegalArgumentException if no component is given, or one is invalid or unsupported.
+   */
+  Snap[] extractColorComponents(Snap snap, Mask mask, String... components)
+          throws IllegalArgumentException;
 
 
   Snap downsizeImage(Snap snap, int newWidth, int newHeight);
 
+  /**
+   * Rotates the given Snap image clockwise by a multiple of 90 degrees. Rotations by 90 and 270
+   * degrees swap the width and height of the image.
+   *
+   * @param snap    The Snap image to be rotated.
+   * @param degrees The clockwise rotation in degrees; must be a multiple of 90. Negative values
+   *                rotate counter-clockwise.
+   * @return A new Snap instance representing the rotated image.
+   * @throws IllegalArgumentException if the degrees are not a multiple of 90.
+   */
+  Snap rotate(Snap snap, int degrees) throws IllegalArgumentException;
+
+  /**
+   * Transposes the given Snap image, mirroring it across its main diagonal so that the pixel at
+   * row i and column j moves to row j and column i.
+   *
+   * @param snap The Snap image to be transposed.
+   * @return A new Snap instance representing the transposed image.
+   */
+  Snap transpose(Snap snap);
+
   Snap createMask(Snap snap,int xStart, int yStart, int width, int height);
 
 }
@@ -1,7 +1,14 @@
 package model.transform;
 
+import java.util.stream.IntStream;
+
+import model.SingleChannelSnap;
 import model.Snap;
 import model.SnapImpl;
+import model.mask.Mask;
+import model.mask.MaskSnap;
+import model.mask.MaskSpans;
+import model.mask.RectangleMask;
 
 /**
  * This class implements the SnapTransformation interface, providing methods to apply
@@ -10,57 +17,109 @@ import model.SnapImpl;
  */
 public class SnapTransformationImpl implements SnapTransformation {
 
+  // Side length of the square tiles used by the rotate and transpose operations.
+  private static final int TILE_SIZE = 64;
+  // The components extractColorComponents supports, indexed by the codes used internally.
+  private static final String[] COMPONENTS = {"red", "green", "blue", "luma", "intensity",
+      "value"};
+
   /**
    * Applies a transformation to the given Snap image using a specified transformation matrix.
    * The transformation can either be a color matrix transformation or a greyscale conversion.
+   * Each row is walked run by run: selected runs are transformed and the pixels between them
+   * are copied in bulk. A greyscale conversion of the whole image gives a single-channel image.
    *
    * @param image  the Snap image to which the transformation will be applied.
    * @param matrix the transformation matrix, where each row defines how to transform components.
-   * @param mask   an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
+   * @param mask   an optional mask selecting the pixels to transform.
    * @return a new Snap instance with the transformation applied.
    */
   @Override
-  public Snap applyTransformation(Snap image, double[][] matrix, Snap mask, int... percentage) {
+  public Snap applyTransformation(Snap image, double[][] matrix, Mask mask, int... percentage) {
     int width = image.getSnapWidth();
     int height = image.getSnapHeight();
+    int[][][] imageData = image.getSnap();
 
-    int[][][] newImage = new int[height][width][3];
-
-    int[][][] maskData = mask != null ? mask.getSnap() : null;
+    int[][][] newImage = new int[height][width][];
 
     // Determine split point if percentage is provided, otherwise apply to the entire image
     int splitPoint = percentage.length > 0 ? (width * percentage[0]) / 100 : width;
+    int limit = Math.min(splitPoint, width);
+
+    if (matrix.length == 1 && mask == null && limit == width) {
+      return greyscaleSnap(imageData, matrix[0], width, height);
+    }
 
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (j < splitPoint && (maskData == null || maskData[i][j][0] == 0)) {
-          // Apply transformation only to the left part (up to the split point)
-          if (matrix.length == 1) {
-            // Greyscale transformation using a single matrix row.
-            int grayValue = (int) Math.round(
-                    matrix[0][0] * image.getSnap()[i][j][0] +  // Red
-                            matrix[0][1] * image.getSnap()[i][j][1] +  // Green
-                            matrix[0][2] * image.getSnap()[i][j][2]    // Blue
-            );
-            newImage[i][j][0] = grayValue;
-            newImage[i][j][1] = clamp(grayValue);
-            newImage[i][j][2] = clamp(grayValue);
-          } else {
-            // Color transformation using the provided matrix.
-            for (int k = 0; k < 3; k++) {
-              newImage[i][j][k] =
-                      clamp((int) Math.round(transform(image.getSnap()[i][j], matrix[k])));
-            }
-          }
-        } else {
-          // Keep the right part of the image unchanged
-          newImage[i][j] = image.getPixelValue(i, j);
+      int[][] sourceRow = imageData[i];
+      int[][] newRow = newImage[i];
+      int[] spans = MaskSpans.getSelectedSpans(mask, i, limit);
+      int j = 0;
+
+      for (int k = 0; k < spans.length; k += 2) {
+        // Keep the pixels before the run unchanged
+        System.arraycopy(sourceRow, j, newRow, j, spans[k] - j);
+        for (j = spans[k]; j < spans[k + 1]; j++) {
+          newRow[j] = transformPixel(sourceRow[j], matrix);
         }
       }
+      System.arraycopy(sourceRow, j, newRow, j, width - j);
     }
     return new SnapImpl(newImage);
   }
 
+  /**
+   * Converts every pixel of an image to grey with a single matrix row, storing one value per
+   * pixel.
+   *
+   * @param imageData the pixel data of the image.
+   * @param weights   the weights of the red, green and blue values.
+   * @param width     the width of the image.
+   * @param height    the height of the image.
+   * @return a new single-channel Snap holding the grey values.
+   */
+  private Snap greyscaleSnap(int[][][] imageData, double[] weights, int width, int height) {
+    byte[] values = new byte[width * height];
+    int index = 0;
+    for (int i = 0; i < height; i++) {
+      int[][] sourceRow = imageData[i];
+      for (int j = 0; j < width; j++) {
+        int[] pixel = sourceRow[j];
+        values[index++] = (byte) clamp((int) Math.round(
+                weights[0] * pixel[0] + weights[1] * pixel[1] + weights[2] * pixel[2]));
+      }
+    }
+    return new SingleChannelSnap(values, width, height, SingleChannelSnap.Tint.GREY);
+  }
+
+  /**
+   * Transforms a single pixel with the given transformation matrix.
+   *
+   * @param pixel  an array representing the RGB values of the pixel.
+   * @param matrix the transformation matrix, either a single greyscale row or a 3x3 matrix.
+   * @return a new array holding the transformed RGB values.
+   */
+  private int[] transformPixel(int[] pixel, double[][] matrix) {
+    int[] newPixel = new int[3];
+    if (matrix.length == 1) {
+      // Greyscale transformation using a single matrix row.
+      int grayValue = (int) Math.round(
+              matrix[0][0] * pixel[0] +  // Red
+                      matrix[0][1] * pixel[1] +  // Green
+                      matrix[0][2] * pixel[2]    // Blue
+      );
+      newPixel[0] = grayValue;
+      newPixel[1] = clamp(grayValue);
+      newPixel[2] = clamp(grayValue);
+    } else {
+      // Color transformation using the provided matrix.
+      for (int k = 0; k < 3; k++) {
+        newPixel[k] = clamp((int) Math.round(transform(pixel, matrix[k])));
+      }
+    }
+    return newPixel;
+  }
+
   /**
    * Applies a vertical flip to the given Snap image, transforming it along the vertical axis.
    *
@@ -107,6 +166,124 @@ public class SnapTransformationImpl implements SnapTransformation {
     return new SnapImpl(flippedSnap);
   }
 
+  /**
+   * Rotates the given Snap image clockwise by a multiple of 90 degrees. The 90 and 270 degree
+   * rotations are done with a tiled transposition so that both the rows being read and the rows
+   * being written stay in cache, and the tiles are processed in parallel.
+   *
+   * @param snap    the Snap image to be rotated.
+   * @param degrees the clockwise rotation in degrees, a multiple of 90.
+   * @return a new Snap instance with the rotation applied.
+   * @throws IllegalArgumentException if the degrees are not a multiple of 90.
+   */
+  @Override
+  public Snap rotate(Snap snap, int degrees) throws IllegalArgumentException {
+    if (degrees % 90 != 0) {
+      throw new IllegalArgumentException("Rotation must be a multiple of 90 degrees");
+    }
+
+    switch (((degrees % 360) + 360) % 360) {
+      case 90:
+        return new SnapImpl(transposeTiled(snap, false, true));
+      case 180:
+        return rotateHalfTurn(snap);
+      case 270:
+        return new SnapImpl(transposeTiled(snap, true, false));
+      default:
+        return new SnapImpl(copyRows(snap));
+    }
+  }
+
+  /**
+   * Transposes the given Snap image across its main diagonal using a tiled transposition.
+   *
+   * @param snap the Snap image to be transposed.
+   * @return a new Snap instance with the transposition applied.
+   */
+  @Override
+  public Snap transpose(Snap snap) {
+    return new SnapImpl(transposeTiled(snap, false, false));
+  }
+
+  /**
+   * Moves every pixel at (i, j) to (j, i) of a new image, optionally mirroring the destination
+   * rows or columns. The image is walked in square tiles so that the destination rows touched by
+   * a tile stay in cache, instead of striding across the whole output for every source pixel.
+   * Tiles write disjoint parts of the output, so they are processed in parallel.
+   *
+   * @param snap        the Snap image to be transposed.
+   * @param flipRows    whether the destination row index is mirrored (gives a 270 degree turn).
+   * @param flipColumns whether the destination column index is mirrored (gives a 90 degree turn).
+   * @return the transposed pixel data.
+   */
+  private int[][][] transposeTiled(Snap snap, boolean flipRows, boolean flipColumns) {
+    int[][][] snapData = snap.getSnap();
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+    int[][][] transposed = new int[width][height][];
+
+    int tileRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+    int tileColumns = (width + TILE_SIZE - 1) / TILE_SIZE;
+
+    IntStream.range(0, tileRows * tileColumns).parallel().forEach(tile -> {
+      int rowStart = (tile / tileColumns) * TILE_SIZE;
+      int columnStart = (tile % tileColumns) * TILE_SIZE;
+      int rowEnd = Math.min(rowStart + TILE_SIZE, height);
+      int columnEnd = Math.min(columnStart + TILE_SIZE, width);
+
+      for (int i = rowStart; i < rowEnd; i++) {
+        int[][] sourceRow = snapData[i];
+        int destinationColumn = flipColumns ? height - 1 - i : i;
+        for (int j = columnStart; j < columnEnd; j++) {
+          int destinationRow = flipRows ? width - 1 - j : j;
+          transposed[destinationRow][destinationColumn] = sourceRow[j];
+        }
+      }
+    });
+
+    return transposed;
+  }
+
+  /**
+   * Rotates the given Snap image by 180 degrees. Source and destination rows are both walked
+   * sequentially, so no tiling is needed and the rows are processed in parallel.
+   *
+   * @param snap the Snap image to be rotated.
+   * @return a new Snap instance with the rotation applied.
+   */
+  private Snap rotateHalfTurn(Snap snap) {
+    int[][][] snapData = snap.getSnap();
+    int height = snap.getSnapHeight();
+    int width = snap.getSnapWidth();
+    int[][][] rotated = new int[height][width][];
+
+    IntStream.range(0, height).parallel().forEach(i -> {
+      int[][] sourceRow = snapData[i];
+      int[][] destinationRow = rotated[height - 1 - i];
+      for (int j = 0; j < width; j++) {
+        destinationRow[width - 1 - j] = sourceRow[j];
+      }
+    });
+
+    return new SnapImpl(rotated);
+  }
+
+  /**
+   * Copies the row structure of the given Snap image, used for rotations by a full turn.
+   *
+   * @param snap the Snap image to be copied.
+   * @return the copied pixel data.
+   */
+  private int[][][] copyRows(Snap snap) {
+    int[][][] snapData = snap.getSnap();
+    int height = snap.getSnapHeight();
+    int[][][] copy = new int[height][][];
+    for (int i = 0; i < height; i++) {
+      copy[i] = snapData[i].clone();
+    }
+    return copy;
+  }
+
   /**
    * Transforms a pixel's color values using a specified filter matrix row.
    *
@@ -133,201 +310,229 @@ public class SnapTransformationImpl implements SnapTransformation {
   }
 
   /**
-   * Extracts the specified color component from the given Snap image.
+   * Extracts the specified color component from the given Snap image, as a one-component
+   * extractColorComponents call.
    *
    * @param snap      the Snap image to extract the component from.
    * @param component the component to extract
-   * @param mask      an optional mask Snap, where black pixels (0,0,0)
+   * @param mask      an optional mask selecting the areas to extract.
    * @return a new Snap instance containing only the specified component.
    * @throws IllegalArgumentException if an unsupported component is requested.
    */
-  public Snap extractColorComponent(Snap snap, String component, Snap mask)
+  public Snap extractColorComponent(Snap snap, String component, Mask mask)
           throws IllegalArgumentException {
-    switch (component.toLowerCase()) {
-      case "red":
-        return extractRedComponent(snap, mask);
-      case "green":
-        return extractGreenComponent(snap, mask);
-      case "blue":
-        return extractBlueComponent(snap, mask);
-      case "luma":
-        return extractLumaComponent(snap, mask);
-      case "intensity":
-        return extractIntensityComponent(snap, mask);
-      case "value":
-        return extractValueComponent(snap, mask);
-      default:
-        throw new IllegalArgumentException("Unsupported component: " + component);
-    }
+    return extractColorComponents(snap, mask, component)[0];
   }
 
   /**
-   * Extracts the red component from the given Snap image.
+   * Extracts several color components from the given Snap image in a single pass. Every
+   * requested component is worked out from each pixel while the pixel is being read, instead of
+   * walking the image once per component.
    *
-   * @param snap the Snap image to extract the red component from.
-   * @param mask an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance containing only the red component in greyscale.
+   * @param snap       the Snap image to extract the components from.
+   * @param mask       an optional mask selecting the areas to extract.
+   * @param components the names of the components to extract.
+   * @return the extracted components, in the same order as their names.
+   * @throws IllegalArgumentException if no component is given, or one is unsupported.
    */
-  private Snap extractRedComponent(Snap snap, Snap mask) throws IllegalArgumentException {
-    return extractSingleColorComponent(snap, 0, mask); // 0 for red channel
-  }
+  @Override
+  public Snap[] extractColorComponents(Snap snap, Mask mask, String... components)
+          throws IllegalArgumentException {
+    if (components == null || components.length == 0) {
+      throw new IllegalArgumentException("At least one component must be given");
+    }
+    int[] codes = new int[components.length];
+    boolean[] wanted = new boolean[COMPONENTS.length];
+    for (int c = 0; c < components.length; c++) {
+      codes[c] = componentCode(components[c]);
+      wanted[codes[c]] = true;
+    }
 
-  /**
-   * Extracts the green component from the given Snap image.
-   *
-   * @param snap the Snap image to extract the green component from.
-   * @param mask an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance containing only the green component in greyscale.
-   */
-  private Snap extractGreenComponent(Snap snap, Snap mask) throws IllegalArgumentException {
-    return extractSingleColorComponent(snap, 1, mask); // 1 for green channel
-  }
+    Snap[] extracted = mask == null
+            ? extractComponentValues(snap, wanted)
+            : extractMaskedComponents(snap, mask, wanted);
 
-  /**
-   * Extracts the blue component from the given Snap image.
-   *
-   * @param snap the Snap image to extract the blue component from.
-   * @param mask an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance containing only the blue component in greyscale.
-   */
-  private Snap extractBlueComponent(Snap snap, Snap mask) throws IllegalArgumentException {
-    return extractSingleColorComponent(snap, 2, mask); // 2 for blue channel
+    Snap[] result = new Snap[components.length];
+    for (int c = 0; c < components.length; c++) {
+      result[c] = extracted[codes[c]];
+    }
+    return result;
   }
 
   /**
-   * Extracts a single color component (red, green, or blue) from the Snap image.
+   * Works out the wanted components of every pixel in one pass and stores each of them as a
+   * single-channel image.
    *
-   * @param snap    the Snap image to extract from.
-   * @param channel the index of the color channel to extract (0 for red, 1 for green, 2 for blue).
-   * @param mask    an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance with only the specified color channel.
+   * @param snap   the Snap image to extract the components from.
+   * @param wanted which components to extract, indexed by their codes.
+   * @return the extracted components indexed by their codes, null where not wanted.
    */
-  private Snap extractSingleColorComponent(Snap snap, int channel, Snap mask)
-          throws IllegalArgumentException {
+  private Snap[] extractComponentValues(Snap snap, boolean[] wanted) {
     int[][][] snapData = snap.getSnap();
     int height = snap.getSnapHeight();
     int width = snap.getSnapWidth();
-    int[][][] colorSnap = new int[height][width][3];
 
-    int[][][] maskData = mask != null ? mask.getSnap() : null; // Fix: Add missing semicolon
+    byte[][] values = new byte[COMPONENTS.length][];
+    for (int code = 0; code < COMPONENTS.length; code++) {
+      if (wanted[code]) {
+        values[code] = new byte[width * height];
+      }
+    }
 
+    int index = 0;
     for (int i = 0; i < height; i++) {
+      int[][] sourceRow = snapData[i];
       for (int j = 0; j < width; j++) {
-        if (maskData == null || maskData[i][j][0] == 0) {
-          // Apply operation for all pixels (no mask) or only for black pixels (with mask)
-          colorSnap[i][j][0] = (channel == 0) ? snapData[i][j][0] : 0; // Red
-          colorSnap[i][j][1] = (channel == 1) ? snapData[i][j][1] : 0; // Green
-          colorSnap[i][j][2] = (channel == 2) ? snapData[i][j][2] : 0; // Blue
-        } else {
-          colorSnap[i][j][0] = snapData[i][j][0];
-          colorSnap[i][j][1] = snapData[i][j][1];
-          colorSnap[i][j][2] = snapData[i][j][2];
+        int[] pixel = sourceRow[j];
+        for (int code = 0; code < COMPONENTS.length; code++) {
+          if (values[code] != null) {
+            values[code][index] = (byte) clamp(componentValue(code, pixel));
+          }
         }
+        index++;
+      }
+    }
+
+    Snap[] extracted = new Snap[COMPONENTS.length];
+    for (int code = 0; code < COMPONENTS.length; code++) {
+      if (values[code] != null) {
+        extracted[code] = new SingleChannelSnap(values[code], width, height, componentTint(code));
       }
     }
-    return new SnapImpl(colorSnap);
+    return extracted;
   }
 
   /**
-   * Extracts the luma component from the given Snap image using the formula
-   * Luma = 0.299 * R + 0.587 * G + 0.114 * B.
+   * Works out the wanted components of the selected pixels in one pass. The unselected pixels
+   * are copied unchanged into every output, so the outputs are kept in RGB.
    *
-   * @param snap the Snap image to extract the luma component from.
-   * @param mask an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance containing only the luma component in greyscale.
+   * @param snap   the Snap image to extract the components from.
+   * @param mask   the mask selecting the areas to extract.
+   * @param wanted which components to extract, indexed by their codes.
+   * @return the extracted components indexed by their codes, null where not wanted.
    */
-  private Snap extractLumaComponent(Snap snap, Snap mask) throws IllegalArgumentException {
+  private Snap[] extractMaskedComponents(Snap snap, Mask mask, boolean[] wanted) {
     int[][][] snapData = snap.getSnap();
     int height = snap.getSnapHeight();
     int width = snap.getSnapWidth();
-    int[][][] lumaSnap = new int[height][width][3];
 
-    int[][][] maskData = mask != null ? mask.getSnap() : null;
+    int[][][][] outputs = new int[COMPONENTS.length][][][];
+    for (int code = 0; code < COMPONENTS.length; code++) {
+      if (wanted[code]) {
+        outputs[code] = new int[height][width][];
+      }
+    }
 
     for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (maskData == null || maskData[i][j][0] == 0) {
-          int lumaValue = (int) Math.round(0.299 * snapData[i][j][0] +  // Red
-                  0.587 * snapData[i][j][1] +  // Green
-                  0.114 * snapData[i][j][2]); // Blue
-          lumaSnap[i][j][0] = lumaValue;
-          lumaSnap[i][j][1] = lumaValue;
-          lumaSnap[i][j][2] = lumaValue;
-        } else {
-          lumaSnap[i][j][0] = snapData[i][j][0];
-          lumaSnap[i][j][1] = snapData[i][j][1];
-          lumaSnap[i][j][2] = snapData[i][j][2];
+      int[][] sourceRow = snapData[i];
+      int[] spans = MaskSpans.getSelectedSpans(mask, i, width);
+      int j = 0;
+
+      for (int k = 0; k <= spans.length; k += 2) {
+        int runStart = k < spans.length ? spans[k] : width;
+        // Pixels outside the selected runs are copied unchanged into every output
+        for (int code = 0; code < COMPONENTS.length; code++) {
+          if (outputs[code] != null) {
+            System.arraycopy(sourceRow, j, outputs[code][i], j, runStart - j);
+          }
+        }
+        if (k == spans.length) {
+          break;
+        }
+        for (j = runStart; j < spans[k + 1]; j++) {
+          int[] pixel = sourceRow[j];
+          for (int code = 0; code < COMPONENTS.length; code++) {
+            if (outputs[code] != null) {
+              outputs[code][i][j] = componentPixel(code, componentValue(code, pixel));
+            }
+          }
         }
       }
     }
-    return new SnapImpl(lumaSnap);
+
+    Snap[] extracted = new Snap[COMPONENTS.length];
+    for (int code = 0; code < COMPONENTS.length; code++) {
+      if (outputs[code] != null) {
+        extracted[code] = new SnapImpl(outputs[code]);
+      }
+    }
+    return extracted;
   }
 
   /**
-   * Extracts the intensity component from the given Snap image using the average of RGB values.
+   * Gets the internal code of a component from its name.
    *
-   * @param snap the Snap image to extract the intensity component from.
-   * @param mask an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance containing only the intensity component in greyscale.
+   * @param component the name of the component.
+   * @return the code of the component.
+   * @throws IllegalArgumentException if the component is unsupported.
    */
-  private Snap extractIntensityComponent(Snap snap, Snap mask) throws IllegalArgumentException {
-    int[][][] snapData = snap.getSnap();
-    int height = snap.getSnapHeight();
-    int width = snap.getSnapWidth();
-    int[][][] intensitySnap = new int[height][width][3];
-    int[][][] maskData = mask != null ? mask.getSnap() : null;
-
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (maskData == null || maskData[i][j][0] == 0) {
-          // Calculate intensity as the average of the RGB values
-          int intensityValue = (snapData[i][j][0] + snapData[i][j][1] + snapData[i][j][2]) / 3;
-          intensitySnap[i][j][0] = intensityValue; // Set all components to the intensity value
-          intensitySnap[i][j][1] = intensityValue;
-          intensitySnap[i][j][2] = intensityValue;
-        } else {
-          intensitySnap[i][j][0] = snapData[i][j][0];
-          intensitySnap[i][j][1] = snapData[i][j][1];
-          intensitySnap[i][j][2] = snapData[i][j][2];
+  private int componentCode(String component) throws IllegalArgumentException {
+    if (component != null) {
+      for (int code = 0; code < COMPONENTS.length; code++) {
+        if (COMPONENTS[code].equalsIgnoreCase(component)) {
+          return code;
         }
       }
     }
-    return new SnapImpl(intensitySnap);
+    throw new IllegalArgumentException("Unsupported component: " + component);
   }
 
   /**
-   * Extracts the value component from the given Snap image, where each pixel is converted to
-   * its value component (the maximum of the red, green, or blue values).
+   * Works out one component of a pixel. This is the only place the formula of each component
+   * is written, so every extraction, masked or not, gives the same values.
    *
-   * @param snap the Snap image to be transformed.
-   * @param mask an optional mask Snap, where black pixels (0,0,0) indicate the areas to extract.
-   * @return a new Snap instance where each pixel is replaced by its value component in greyscale.
+   * @param code  the code of the component.
+   * @param pixel an array representing the RGB values of the pixel.
+   * @return the value of the component, from 0 to 255.
    */
-  private Snap extractValueComponent(Snap snap, Snap mask) throws IllegalArgumentException {
-    int[][][] snapData = snap.getSnap();
-    int height = snap.getSnapHeight();
-    int width = snap.getSnapWidth();
-    int[][][] valueSnap = new int[height][width][3];
+  private int componentValue(int code, int[] pixel) {
+    switch (code) {
+      case 0:
+      case 1:
+      case 2:
+        return pixel[code];
+      case 3:
+        return (int) Math.round(0.299 * pixel[0] + 0.587 * pixel[1] + 0.114 * pixel[2]);
+      case 4:
+        return (pixel[0] + pixel[1] + pixel[2]) / 3;
+      default:
+        return Math.max(pixel[0], Math.max(pixel[1], pixel[2]));
+    }
+  }
 
-    int[][][] maskData = mask != null ? mask.getSnap() : null;
+  /**
+   * Gets how the value of a component is shown in RGB.
+   *
+   * @param code the code of the component.
+   * @return the tint of the red, green and blue components, grey for the others.
+   */
+  private SingleChannelSnap.Tint componentTint(int code) {
+    switch (code) {
+      case 0:
+        return SingleChannelSnap.Tint.RED;
+      case 1:
+        return SingleChannelSnap.Tint.GREEN;
+      case 2:
+        return SingleChannelSnap.Tint.BLUE;
+      default:
+        return SingleChannelSnap.Tint.GREY;
+    }
+  }
 
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        if (maskData == null || maskData[i][j][0] == 0) {
-          int maxValue = Math.max(snapData[i][j][0],
-                  Math.max(snapData[i][j][1], snapData[i][j][2]));
-          valueSnap[i][j][0] = maxValue;
-          valueSnap[i][j][1] = maxValue;
-          valueSnap[i][j][2] = maxValue;
-        } else {
-          valueSnap[i][j][0] = snapData[i][j][0];
-          valueSnap[i][j][1] = snapData[i][j][1];
-          valueSnap[i][j][2] = snapData[i][j][2];
-        }
-      }
+  /**
+   * Builds the RGB pixel showing the value of a component.
+   *
+   * @param code  the code of the component.
+   * @param value the value of the component.
+   * @return a new array holding the RGB values of the pixel.
+   */
+  private int[] componentPixel(int code, int value) {
+    if (code < 3) {
+      int[] pixel = new int[3];
+      pixel[code] = value;
+      return pixel;
     }
-    return new SnapImpl(valueSnap);
+    return new int[]{value, value, value};
   }
 
   /**
@@ -399,7 +604,8 @@ public class SnapTransformationImpl implements SnapTransformation {
 
   /**
    * Creates a mask Snap with the specified rectangle region set to black (0,0,0)
-   * and the rest of the image set to white (255,255,255).
+   * and the rest of the image set to white (255,255,255). The Snap only stores the rectangle;
+   * its pixels are built when they are first asked for.
    *
    * @param snap   the original Snap image to use for dimensions.
    * @param xStart the starting x-coordinate of the rectangle.
@@ -420,22 +626,7 @@ public class SnapTransformationImpl implements SnapTransformation {
 
     int imageWidth = snap.getSnapWidth();
     int imageHeight = snap.getSnapHeight();
-    int[][][] maskImage = new int[imageHeight][imageWidth][3];
-
-    // Loop through each pixel in the image
-    for (int row = 0; row < imageHeight; row++) {
-      for (int col = 0; col < imageWidth; col++) {
-        // If the pixel is within the specified rectangle, make it black; otherwise, white
-        if (row >= yStart && row < yStart + height && col >= xStart && col < xStart + width) {
-          maskImage[row][col] = new int[]{0, 0, 0}; // Black for the mask
-        } else {
-          maskImage[row][col] = new int[]{255, 255, 255}; // White for unmasked areas
-        }
-      }
-    }
-
-    // Return a new Snap object representing the mask
-    return new SnapImpl(maskImage);
+    return new MaskSnap(new RectangleMask(imageWidth, imageHeight, xStart, yStart, width, height));
   }
 
 
@@ -2,16 +2,27 @@ import org.junit.Before;
 import org.junit.Test;
 
 import controller.SnapControllerImpl;
+import controller.SnapUtil;
 import model.Snap;
 import model.SnapImpl;
 import model.SnapModel;
+import model.mask.Mask;
+import model.mask.MaskSnap;
 
+import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.io.StringReader;
 
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test class for the SnapControllerImpl using a mock SnapModel.
@@ -38,40 +49,65 @@ public class MockSnapControllerTest {
       }
 
       @Override
-      public void redComponent(Snap mask) throws IllegalArgumentException {
+      public void redComponent(Mask mask) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 1;
         }
       }
 
       @Override
-      public void greenComponent(Snap mask) throws IllegalArgumentException {
+      public void greenComponent(Mask mask) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 2;
         }
       }
 
       @Override
-      public void blueComponent(Snap mask) throws IllegalArgumentException {
+      public void blueComponent(Mask mask) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 3;
         }
       }
 
       @Override
-      public void lumaComponent(Snap mask) throws IllegalArgumentException {
+      public void lumaComponent(Mask mask) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 4;
         }
       }
 
       @Override
-      public void intensityComponent(Snap mask) throws IllegalArgumentException {
+      public void intensityComponent(Mask mask) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 5;
         }
       }
 
+      @Override
+      public Snap[] extractComponents(Mask mask, String... components)
+              throws IllegalArgumentException {
+        Snap[] componentSnaps = new Snap[components.length];
+        if (snap != null) {
+          snap[0][0][0] = 19;
+          for (int i = 0; i < components.length; i++) {
+            componentSnaps[i] = new SnapImpl(snap);
+          }
+        }
+        return componentSnaps;
+      }
+
+      @Override
+      public Snap[] compressionSweep(double... values) throws IllegalArgumentException {
+        Snap[] compressed = new Snap[values.length];
+        if (snap != null) {
+          snap[0][0][0] = 20;
+          for (int i = 0; i < values.length; i++) {
+            compressed[i] = new SnapImpl(snap);
+          }
+        }
+        return compressed;
+      }
+
       @Override
       public void compressionComponent(double value) throws IllegalArgumentException {
         if (snap != null) {
@@ -79,6 +115,13 @@ public class MockSnapControllerTest {
         }
       }
 
+      @Override
+      public void integerCompressionComponent(double value) throws IllegalArgumentException {
+        if (snap != null) {
+          snap[0][0][0] = 21;
+        }
+      }
+
       @Override
       public void colorCorrectionComponent(int... percentage) throws IllegalArgumentException {
         if (snap != null) {
@@ -93,6 +136,29 @@ public class MockSnapControllerTest {
         }
       }
 
+      @Override
+      public void histogramComponent(int width, int height) throws IllegalArgumentException {
+        if (snap != null) {
+          snap[0][0][0] = 22;
+        }
+      }
+
+      @Override
+      public void autoLevelsComponent(double clipPercentage, Mask mask, int... percentage)
+              throws IllegalArgumentException {
+        if (snap != null) {
+          snap[0][0][0] = 23;
+        }
+      }
+
+      @Override
+      public void equalizeComponent(Mask mask, int... percentage)
+              throws IllegalArgumentException {
+        if (snap != null) {
+          snap[0][0][0] = 24;
+        }
+      }
+
       @Override
       public void levelAdjustment(int black, int mid, int white, int... percentage)
               throws IllegalArgumentException {
@@ -121,6 +187,11 @@ public class MockSnapControllerTest {
         return snap;
       }
 
+      @Override
+      public Snap getCurrentSnap() {
+        return snap == null ? null : new SnapImpl(snap);
+      }
+
       @Override
       public int getSnapWidth() {
         return 1;
@@ -132,21 +203,21 @@ public class MockSnapControllerTest {
       }
 
       @Override
-      public void blur(Snap mask, int... percentage) throws IllegalArgumentException {
+      public void blur(Mask mask, int... percentage) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 10;
         }
       }
 
       @Override
-      public void sharpen(Snap mask, int... percentage) throws IllegalArgumentException {
+      public void sharpen(Mask mask, int... percentage) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 11;
         }
       }
 
       @Override
-      public void toSepia(Snap mask, int... percentage) throws IllegalArgumentException {
+      public void toSepia(Mask mask, int... percentage) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = Math.min(255, (int) (0.393 * 50 + 0.769 * 100 + 0.189 * 150));
           snap[0][0][1] = Math.min(255, (int) (0.349 * 50 + 0.686 * 100 + 0.168 * 150));
@@ -155,7 +226,7 @@ public class MockSnapControllerTest {
       }
 
       @Override
-      public void toGreyscale(Snap mask, int... percentage) throws IllegalArgumentException {
+      public void toGreyscale(Mask mask, int... percentage) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 12;
         }
@@ -177,7 +248,7 @@ public class MockSnapControllerTest {
       }
 
       @Override
-      public void valueComponent(Snap mask) throws IllegalArgumentException {
+      public void valueComponent(Mask mask) throws IllegalArgumentException {
         if (snap != null) {
           snap[0][0][0] = 14;
         }
@@ -190,6 +261,20 @@ public class MockSnapControllerTest {
         }
       }
 
+      @Override
+      public void rotate(int degrees) throws IllegalArgumentException {
+        if (snap != null) {
+          snap[0][0][0] = 17;
+        }
+      }
+
+      @Override
+      public void transpose() throws IllegalArgumentException {
+        if (snap != null) {
+          snap[0][0][0] = 18;
+        }
+      }
+
       @Override
       public Snap[] applyRGBSplit() throws IllegalArgumentException {
         return new Snap[0];
@@ -270,6 +355,137 @@ public class MockSnapControllerTest {
     assertEquals("Invalid Command", output);
   }
 
+  @Test
+  public void testInvalidSaveOption() {
+    controller.modelMap.put("cat", new SnapImpl(new int[1][1][3]));
+
+    String input = "save cat.ppm cat ascii";
+    String[] simulatedInput = input.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(baos));
+    controller.executables.get("save").run();
+    System.setOut(originalOut);
+    String output = baos.toString().trim();
+
+    assertEquals("Invalid Command", output);
+  }
+
+  @Test
+  public void testStreamCommand() throws IOException {
+    File input = File.createTempFile("stream", ".ppm");
+    File output = File.createTempFile("streamed", ".ppm");
+    input.deleteOnExit();
+    output.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(input)) {
+      out.write("P6\n2 1\n255\n".getBytes());
+      out.write(new byte[]{50, 100, (byte) 150, 1, 2, 3});
+    }
+
+    String command = "stream " + input.getPath() + " " + output.getPath() + " brighten 10";
+    String[] simulatedInput = command.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("stream").run();
+
+    // The rows are put through the model and written out
+    int[][][] streamed = SnapUtil.readSnap(output.getPath());
+    assertEquals(60, streamed[0][0][0]);
+    assertEquals(1, streamed[0][1][0]);
+  }
+
+  @Test
+  public void testStreamCommandReadsPng() throws IOException {
+    File input = File.createTempFile("stream", ".png");
+    File output = File.createTempFile("streamed", ".ppm");
+    input.deleteOnExit();
+    output.deleteOnExit();
+    BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_3BYTE_BGR);
+    image.setRGB(0, 0, 0x326496);
+    image.setRGB(1, 1, 0x010203);
+    ImageIO.write(image, "png", input);
+
+    String command = "stream " + input.getPath() + " " + output.getPath() + " brighten 10";
+    String[] simulatedInput = command.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("stream").run();
+
+    int[][][] streamed = SnapUtil.readSnap(output.getPath());
+    assertEquals(60, streamed[0][0][0]);
+    assertEquals(100, streamed[0][0][1]);
+    assertEquals(3, streamed[1][1][2]);
+  }
+
+  @Test
+  public void testStreamCommandRejectsJpeg() {
+    String input = "stream in.jpg out.ppm brighten 10";
+    String[] simulatedInput = input.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(baos));
+    controller.executables.get("stream").run();
+    System.setOut(originalOut);
+    String output = baos.toString().trim();
+
+    assertEquals("Error: Only binary PPM and PNG files can be streamed", output);
+  }
+
+  @Test
+  public void testStreamCommandRejectsWholeImageOperations() {
+    String input = "stream in.ppm out.ppm brighten 10 rotate 90";
+    String[] simulatedInput = input.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(baos));
+    controller.executables.get("stream").run();
+    System.setOut(originalOut);
+    String output = baos.toString().trim();
+
+    assertEquals("Error: Operation cannot be streamed: rotate", output);
+  }
+
+  @Test
+  public void testPrefetchedScriptReloadsSavedFile() throws IOException {
+    File image = File.createTempFile("prefetch", ".ppm");
+    image.deleteOnExit();
+    int[][][] pixels = new int[1][1][3];
+    pixels[0][0][0] = 10;
+    SnapUtil.writeSnap(pixels, image.getPath(), 1, 1);
+
+    // The second load reads the file the script saves, so it must not be read ahead of time
+    String script = "load " + image.getPath() + " first\n"
+            + "brighten 5 first brighter\n"
+            + "save " + image.getPath() + " brighter\n"
+            + "load " + image.getPath() + " second\n";
+    SnapControllerImpl prefetching =
+            new SnapControllerImpl(new StringReader(script), mockModel, true);
+
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(new ByteArrayOutputStream()));
+    try {
+      prefetching.start();
+    } finally {
+      System.setOut(originalOut);
+    }
+
+    assertEquals(15, prefetching.modelMap.get("second").getSnap()[0][0][0]);
+  }
+
   @Test
   public void testBlurCommand() {
     // Load a mock image
@@ -279,7 +495,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "blur cat catBlur";
     String[] simulatedInput = input.split(" ");
@@ -300,7 +516,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "blur cat"; // Invalid command here
     String[] simulatedInput = input.split(" ");
@@ -339,8 +555,8 @@ public class MockSnapControllerTest {
     mockModel.loadSnap(new SnapImpl(maskImage)); // Assume `loadMask` exists for loading masks
 
     // Simulate the mask and blur command
-    controller.modelMap.put("cat", mockImage);
-    controller.modelMap.put("mask1", maskImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    controller.modelMap.put("mask1", new SnapImpl(maskImage));
 
     String input = "blur-mask cat mask1 catBlur";
     String[] simulatedInput = input.split(" ");
@@ -355,6 +571,26 @@ public class MockSnapControllerTest {
   }
 
 
+  @Test
+  public void testBlackAndWhiteMaskImageIsStoredAsMask() {
+    int[][][] mockImage = new int[1][2][3];
+    int[][][] maskImage = new int[1][2][3];
+    maskImage[0][1] = new int[]{255, 255, 255};
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    controller.modelMap.put("mask1", new SnapImpl(maskImage));
+
+    String[] simulatedInput = "blur cat mask1 catBlur".split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("blur").run();
+
+    // Once used as a mask, the image is kept as its mask rather than as pixels
+    Snap stored = controller.modelMap.get("mask1");
+    assertTrue(stored instanceof MaskSnap);
+    assertTrue(((MaskSnap) stored).getMask().isMasked(0, 0));
+    assertArrayEquals(maskImage[0][1], stored.getPixelValue(0, 1));
+  }
+
   @Test
   public void testBlurSplitCommand() {
     // Load a mock image
@@ -362,7 +598,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "blur cat catBlur split 50";
     String[] simulatedInput = input.split(" ");
@@ -382,7 +618,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
 
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "brighten 20 cat catBright";
     String[] simulatedInput = input.split(" ");
@@ -407,7 +643,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "brighten 20 cat";
     String[] simulatedInput = input.split(" ");
@@ -432,7 +668,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "sepia cat catSepia";
     String[] simulatedInput = input.split(" ");
@@ -460,7 +696,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "sepia cat";
     String[] simulatedInput = input.split(" ");
@@ -485,7 +721,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "sepia cat catSepia split 50";
     String[] simulatedInput = input.split(" ");
@@ -511,7 +747,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "sharpen cat catSharpen";
     String[] simulatedInput = input.split(" ");
@@ -533,7 +769,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "sharpen cat";
     String[] simulatedInput = input.split(" ");
@@ -558,7 +794,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "sharpen cat catSharpen split 50";
@@ -579,7 +815,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "color-correct cat catColorCorrect";
@@ -602,7 +838,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "color-correct cat";
     String[] simulatedInput = input.split(" ");
@@ -627,7 +863,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "color-correct cat catColorCorrect split 50";
@@ -648,7 +884,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //  mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "level-adjust 100 150 200 cat catLevelAdjust";
@@ -670,7 +906,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "level-adjust cat";
     String[] simulatedInput = input.split(" ");
@@ -695,7 +931,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "level-adjust 100 150 200 cat catLevelAdjust split 50";
@@ -715,7 +951,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "greyscale cat catGrey";
@@ -737,7 +973,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "greyscale cat";
     String[] simulatedInput = input.split(" ");
@@ -763,7 +999,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
 
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "greyscale cat catGrey split 50";
@@ -783,7 +1019,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "compress 50 cat catCompress";
@@ -805,7 +1041,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "compress cat";
     String[] simulatedInput = input.split(" ");
@@ -830,7 +1066,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "histogram cat catHistogram";
@@ -843,6 +1079,45 @@ public class MockSnapControllerTest {
     assertEquals(8, mockModel.getSnap()[0][0][0]);
   }
 
+  @Test
+  public void testSizedHistogramCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "histogram cat catHistogram 512 128";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("histogram").run();
+    assertEquals(22, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("catHistogram"));
+  }
+
+  @Test
+  public void testAutoLevelsCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "auto-levels cat catLevels split 50";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("auto-levels").run();
+    assertEquals(23, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("catLevels"));
+  }
+
+  @Test
+  public void testEqualizeCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "equalize cat catEqualized";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("equalize").run();
+    assertEquals(24, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("catEqualized"));
+  }
+
   @Test
   public void testInvalidHistogramCommand() {
     // Set up a mock image (1x1 image)
@@ -852,7 +1127,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "histogram cat";
     String[] simulatedInput = input.split(" ");
@@ -877,7 +1152,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //  mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "red-component cat catRed";
@@ -899,7 +1174,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "red-component cat";
     String[] simulatedInput = input.split(" ");
@@ -924,7 +1199,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "green-component cat catGreen";
@@ -946,7 +1221,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "green-component cat";
     String[] simulatedInput = input.split(" ");
@@ -971,7 +1246,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "blue-component cat catBlue";
@@ -993,7 +1268,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "blue-component cat";
     String[] simulatedInput = input.split(" ");
@@ -1018,7 +1293,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "luma-component cat catLuma";
@@ -1040,7 +1315,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "luma-component cat";
     String[] simulatedInput = input.split(" ");
@@ -1065,7 +1340,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "intensity-component cat catRed";
@@ -1088,7 +1363,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "intensity-component cat";
     String[] simulatedInput = input.split(" ");
@@ -1114,7 +1389,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
     // mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "value-component cat catValue";
     String[] simulatedInput = input.split(" ");
@@ -1135,7 +1410,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "value-component cat";
     String[] simulatedInput = input.split(" ");
@@ -1160,7 +1435,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     //mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "vertical-flip cat catVerticalFlip";
@@ -1182,7 +1457,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "vertical-flip cat";
     String[] simulatedInput = input.split(" ");
@@ -1207,7 +1482,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;  // Red value
     mockImage[0][0][1] = 100; // Green value
     mockImage[0][0][2] = 150; // Blue value
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     // mockModel.loadSnap(new SnapImpl(mockImage));
 
     String input = "horizontal-flip cat catHorizontal";
@@ -1229,7 +1504,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "horizontal-flip cat";
     String[] simulatedInput = input.split(" ");
@@ -1256,7 +1531,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "rgb-split cat";
     String[] simulatedInput = input.split(" ");
@@ -1296,7 +1571,7 @@ public class MockSnapControllerTest {
     baseImage[0][0][0] = 0;
     baseImage[0][0][1] = 0;
     baseImage[0][0][2] = 0;
-    controller.modelMap.put("cat", baseImage);
+    controller.modelMap.put("cat", new SnapImpl(baseImage));
     mockModel.loadSnap(new SnapImpl(baseImage));
 
     // Execute the RGB combine command with mock inputs
@@ -1322,7 +1597,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "rgb-combine cat";
     String[] simulatedInput = input.split(" ");
@@ -1346,7 +1621,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;
     mockImage[0][0][1] = 100;
     mockImage[0][0][2] = 150;
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     String input = "mask cat catMask 0 0 1 1";
     String[] simulatedInput = input.split(" ");
     controller.commands = simulatedInput;
@@ -1365,7 +1640,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "mask cat";
     String[] simulatedInput = input.split(" ");
@@ -1389,7 +1664,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][0] = 50;
     mockImage[0][0][1] = 100;
     mockImage[0][0][2] = 150;
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
     String input = "downsize cat catDownsize 100 100";
     String[] simulatedInput = input.split(" ");
     controller.commands = simulatedInput;
@@ -1407,7 +1682,7 @@ public class MockSnapControllerTest {
     mockImage[0][0][2] = 150; // Blue value
 
     mockModel.loadSnap(new SnapImpl(mockImage));
-    controller.modelMap.put("cat", mockImage);
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
 
     String input = "downsize cat";
     String[] simulatedInput = input.split(" ");
@@ -1425,4 +1700,131 @@ public class MockSnapControllerTest {
     assertEquals("Invalid command", output);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void testRotateCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    mockImage[0][0][0] = 50;
+    mockImage[0][0][1] = 100;
+    mockImage[0][0][2] = 150;
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "rotate 90 cat catRotate";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("rotate").run();
+    assertEquals(17, mockModel.getSnap()[0][0][0]);
+  }
+
+  @Test
+  public void testInvalidRotateCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+
+    String input = "rotate 90 cat";
+    String[] simulatedInput = input.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(baos));
+    controller.executables.get("rotate").run();
+    System.setOut(originalOut);
+    String output = baos.toString().trim();
+
+    assertEquals("Invalid command", output);
+  }
+
+  @Test
+  public void testTransposeCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    mockImage[0][0][0] = 50;
+    mockImage[0][0][1] = 100;
+    mockImage[0][0][2] = 150;
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "transpose cat catTranspose";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("transpose").run();
+    assertEquals(18, mockModel.getSnap()[0][0][0]);
+  }
+
+  @Test
+  public void testCompressSweepCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "compress cat catSmall sweep 10,50,90";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("compress").run();
+    assertEquals(20, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("catSmall-10"));
+    assertNotNull(controller.modelMap.get("catSmall-50"));
+    assertNotNull(controller.modelMap.get("catSmall-90"));
+  }
+
+  @Test
+  public void testCompressIntegerCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "compress 50 cat catSmall integer";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("compress").run();
+    assertEquals(21, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("catSmall"));
+  }
+
+  @Test
+  public void testCompressIntegerCommandIntoImageNamedSweep() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "compress 50 cat sweep integer";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("compress").run();
+    assertEquals(21, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("sweep"));
+  }
+
+  @Test
+  public void testComponentsCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+    String input = "components red,luma,value cat catPart";
+    String[] simulatedInput = input.split(" ");
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+    controller.executables.get("components").run();
+    assertEquals(19, mockModel.getSnap()[0][0][0]);
+    assertNotNull(controller.modelMap.get("catPart-red"));
+    assertNotNull(controller.modelMap.get("catPart-luma"));
+    assertNotNull(controller.modelMap.get("catPart-value"));
+  }
+
+  @Test
+  public void testInvalidComponentsCommand() {
+    int[][][] mockImage = new int[1][1][3];
+    controller.modelMap.put("cat", new SnapImpl(mockImage));
+
+    String input = "components red cat";
+    String[] simulatedInput = input.split(" ");
+
+    controller.commands = simulatedInput;
+    controller.counter = simulatedInput.length;
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    PrintStream originalOut = System.out;
+    System.setOut(new PrintStream(baos));
+    controller.executables.get("components").run();
+    System.setOut(originalOut);
+    String output = baos.toString().trim();
+
+    assertEquals("Invalid command", output);
+  }
+}
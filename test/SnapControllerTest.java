@@ -15,6 +15,7 @@ import model.Snap;
 import model.SnapImpl;
 import model.SnapModel;
 import model.SnapModelImpl;
+import model.mask.Mask;
 
 import static controller.SnapUtil.readSnap;
 import static controller.SnapUtil.writeSnap;
@@ -155,7 +156,7 @@ public class SnapControllerTest {
   @Test
   public void testValidSharpenCommand() throws IOException {
     // Test valid sharpen command
-    Snap unionSquareMask = null;
+    Mask unionSquareMask = null;
     unionSquareM.sharpen(unionSquareMask);
     writeSnap(unionSquareM.getSnap(), "resources/unionSquareTest.jpg",
             unionSquareM.getSnapHeight(), unionSquareM.getSnapWidth());
@@ -1,11 +1,29 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import model.SingleChannelSnap;
 import model.Snap;
 import model.SnapImpl;
 import model.SnapModelImpl;
+import model.SnapStatistics;
+import controller.SnapUtil;
+import controller.SnapWaveletReader;
 import model.filter.HistogramGenerator;
 import model.filter.HistogramGeneratorImpl;
+import model.mask.BitSetMask;
+import model.mask.Mask;
+import model.mask.MaskSnap;
+import model.mask.RectangleMask;
+import model.mask.SpanMask;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
@@ -104,6 +122,100 @@ public class SnapModelTest {
     assertArrayEquals(snapExpected, snapModel.getSnap());
   }
 
+  @Test
+  public void testCompressionSweepMatchesSingleCompression() {
+    int[][][] pixels = new int[5][7][3];
+    for (int i = 0; i < 5; i++) {
+      for (int j = 0; j < 7; j++) {
+        pixels[i][j] = new int[]{(i * 37 + j * 11) % 256, (i * j * 13) % 256, (j * 29) % 256};
+      }
+    }
+    double[] percentages = {0, 25, 50, 90};
+    snapModel.loadSnap(new SnapImpl(pixels));
+    Snap[] swept = snapModel.compressionSweep(percentages);
+
+    assertEquals(percentages.length, swept.length);
+    for (int p = 0; p < percentages.length; p++) {
+      SnapModelImpl single = new SnapModelImpl();
+      single.loadSnap(new SnapImpl(pixels));
+      single.compressionComponent(percentages[p]);
+      assertArrayEquals(single.getSnap(), swept[p].getSnap());
+    }
+    // The current image is left unchanged
+    assertArrayEquals(pixels, snapModel.getSnap());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompressionSweepRejectsPercentageAbove100() {
+    snapModel.loadSnap(new SnapImpl(new int[2][2][3]));
+    snapModel.compressionSweep(50, 101);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCompressionSweepRejectsNoPercentages() {
+    snapModel.loadSnap(new SnapImpl(new int[2][2][3]));
+    snapModel.compressionSweep();
+  }
+
+  @Test
+  public void testCompressionRectangle() {
+    int[][][] pixels = new int[2][5][3];
+    for (int j = 0; j < 5; j++) {
+      pixels[0][j] = new int[]{j * 50, 255 - j * 50, 100};
+      pixels[1][j] = new int[]{200, j * 10, 255};
+    }
+    snapModel.loadSnap(new SnapImpl(pixels));
+
+    snapModel.compressionComponent(0.0);
+    int[][][] compressed = snapModel.getSnap();
+
+    assertEquals(5, snapModel.getSnapWidth());
+    assertEquals(2, snapModel.getSnapHeight());
+    for (int i = 0; i < 2; i++) {
+      for (int j = 0; j < 5; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertTrue(Math.abs(pixels[i][j][k] - compressed[i][j][k]) <= 1);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testIntegerCompressionZeroIsLossless() {
+    snapModel.loadSnap(mockSnap);
+
+    snapModel.integerCompressionComponent(0.0);
+
+    assertArrayEquals(mockSnap.getSnap(), snapModel.getSnap());
+  }
+
+  @Test
+  public void testIntegerCompressionRectangleIsLossless() {
+    int[][][] pixels = new int[3][6][3];
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 6; j++) {
+        pixels[i][j] = new int[]{(i * 91 + j * 17) % 256, (i * j * 53) % 256, 255 - j * 40};
+      }
+    }
+    snapModel.loadSnap(new SnapImpl(pixels));
+
+    snapModel.integerCompressionComponent(0.0);
+
+    assertArrayEquals(pixels, snapModel.getSnap());
+  }
+
+  @Test
+  public void testIntegerCompressionDropsSmallCoefficients() {
+    int[][][] pixels = {{{10, 10, 10}, {4, 4, 4}, {4, 4, 4}, {4, 4, 4}}};
+    snapModel.loadSnap(new SnapImpl(pixels));
+
+    // The coefficients are 5, 3, 6 and 0, so dropping two thirds of them zeroes the 3
+    snapModel.integerCompressionComponent(67.0);
+
+    int[][][] expected = {{{8, 8, 8}, {2, 2, 2}, {5, 5, 5}, {5, 5, 5}}};
+    assertArrayEquals(expected, snapModel.getSnap());
+  }
+
   @Test
   public void testLoadSnap() {
     snapModel.loadSnap(mockSnap);
@@ -607,6 +719,433 @@ public class SnapModelTest {
     assertArrayEquals(expectedFlippedMatrix, snapModel.getSnap());
   }
 
+  @Test
+  public void testRotate90() {
+    int[][][] pixels = {
+            {{1, 1, 1}, {2, 2, 2}, {3, 3, 3}},
+            {{4, 4, 4}, {5, 5, 5}, {6, 6, 6}}
+    };
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.rotate(90);
+    int[][][] expectedRotatedMatrix = {
+            {{4, 4, 4}, {1, 1, 1}},
+            {{5, 5, 5}, {2, 2, 2}},
+            {{6, 6, 6}, {3, 3, 3}}
+    };
+    assertArrayEquals(expectedRotatedMatrix, snapModel.getSnap());
+    assertEquals(2, snapModel.getSnapWidth());
+    assertEquals(3, snapModel.getSnapHeight());
+  }
+
+  @Test
+  public void testRotate180() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.rotate(180);
+    int[][][] expectedRotatedMatrix = {
+            {{150, 150, 150}, {100, 100, 100}, {50, 50, 50}, {255, 100, 50}},
+            {{32, 32, 32}, {192, 192, 192}, {64, 64, 64}, {128, 128, 128}},
+            {{0, 0, 0}, {255, 255, 255}, {0, 255, 255}, {255, 0, 255}},
+            {{255, 255, 0}, {0, 0, 255}, {0, 255, 0}, {255, 0, 0}}
+    };
+    assertArrayEquals(expectedRotatedMatrix, snapModel.getSnap());
+  }
+
+  @Test
+  public void testRotate270MatchesNegative90() {
+    int[][][] pixels = {
+            {{1, 1, 1}, {2, 2, 2}, {3, 3, 3}},
+            {{4, 4, 4}, {5, 5, 5}, {6, 6, 6}}
+    };
+    int[][][] expectedRotatedMatrix = {
+            {{3, 3, 3}, {6, 6, 6}},
+            {{2, 2, 2}, {5, 5, 5}},
+            {{1, 1, 1}, {4, 4, 4}}
+    };
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.rotate(270);
+    assertArrayEquals(expectedRotatedMatrix, snapModel.getSnap());
+
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.rotate(-90);
+    assertArrayEquals(expectedRotatedMatrix, snapModel.getSnap());
+  }
+
+  @Test
+  public void testRotateLargerThanTile() {
+    int height = 130;
+    int width = 70;
+    int[][][] pixels = new int[height][width][3];
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        pixels[i][j] = new int[]{i, j, (i + j) % 256};
+      }
+    }
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.rotate(90);
+    int[][][] rotated = snapModel.getSnap();
+    for (int i = 0; i < height; i++) {
+      for (int j = 0; j < width; j++) {
+        assertArrayEquals(pixels[i][j], rotated[j][height - 1 - i]);
+      }
+    }
+  }
+
+  @Test
+  public void testTranspose() {
+    int[][][] pixels = {
+            {{1, 1, 1}, {2, 2, 2}, {3, 3, 3}},
+            {{4, 4, 4}, {5, 5, 5}, {6, 6, 6}}
+    };
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.transpose();
+    int[][][] expectedTransposedMatrix = {
+            {{1, 1, 1}, {4, 4, 4}},
+            {{2, 2, 2}, {5, 5, 5}},
+            {{3, 3, 3}, {6, 6, 6}}
+    };
+    assertArrayEquals(expectedTransposedMatrix, snapModel.getSnap());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRotateInvalidDegrees() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.rotate(45);
+  }
+
+  @Test
+  public void testRectangleMaskMatchesMaskImage() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.createMaskComponent(1, 1, 2, 2);
+    Mask fromImage = new BitSetMask(snapModel.getSnap());
+    Mask rectangle = new RectangleMask(4, 4, 1, 1, 2, 2);
+
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        assertEquals(rectangle.isMasked(i, j), fromImage.isMasked(i, j));
+      }
+    }
+  }
+
+  @Test
+  public void testMaskImageStoresOnlyTheRectangle() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.createMaskComponent(1, 1, 2, 2);
+    Snap maskImage = snapModel.getCurrentSnap();
+    assertTrue(maskImage instanceof MaskSnap);
+    assertArrayEquals(new int[]{0, 0, 0}, maskImage.getPixelValue(1, 2));
+    assertArrayEquals(new int[]{255, 255, 255}, maskImage.getPixelValue(0, 1));
+
+    // Statistics counted from the mask match those of the same image held as pixels
+    SnapStatistics expected = new SnapImpl(maskImage.getSnap()).getStatistics();
+    SnapStatistics actual = new MaskSnap(new RectangleMask(4, 4, 1, 1, 2, 2)).getStatistics();
+    assertArrayEquals(expected.getFrequencies(), actual.getFrequencies());
+    assertEquals(expected.getContentHash(), actual.getContentHash());
+    assertTrue(MaskSnap.isImageOf(new SnapImpl(maskImage.getSnap()),
+            new RectangleMask(4, 4, 1, 1, 2, 2)));
+  }
+
+  @Test
+  public void testMaskedBlurLeavesSourcePixelsUnchanged() {
+    int[][][] pixels = new int[2][2][3];
+    pixels[0][0] = new int[]{200, 200, 200};
+    pixels[1][1] = new int[]{300, -5, 40};
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.blur(new RectangleMask(2, 2, 0, 0, 1, 1));
+
+    // Only the selected pixel is filtered; the unselected ones are not clamped in the source
+    assertArrayEquals(new int[]{300, -5, 40}, pixels[1][1]);
+    assertArrayEquals(new int[]{200, 200, 200}, pixels[0][0]);
+    int[] filtered = snapModel.getCurrentSnap().getPixelValue(0, 0);
+    assertTrue(filtered[0] >= 0 && filtered[0] <= 255);
+  }
+
+  @Test
+  public void testSpanMaskRowSpans() {
+    int[][][] maskImage = new int[2][6][3];
+    for (int[] pixel : maskImage[0]) {
+      pixel[0] = 255;
+    }
+    // Second row: selected, not, selected, selected, not, selected
+    maskImage[1][1][0] = 255;
+    maskImage[1][4][0] = 255;
+
+    Mask mask = new SpanMask(maskImage);
+    assertArrayEquals(new int[0], mask.getRowSpans(0));
+    assertArrayEquals(new int[]{0, 1, 2, 4, 5, 6}, mask.getRowSpans(1));
+    assertArrayEquals(new int[]{0, 1, 2, 4, 5, 6}, new BitSetMask(maskImage).getRowSpans(1));
+    assertTrue(mask.isMasked(1, 3));
+    assertTrue(!mask.isMasked(1, 4));
+  }
+
+  @Test
+  public void testMaskedSplitOnlyChangesSelectedPixelsBeforeSplit() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.toSepia(new RectangleMask(4, 4, 1, 0, 3, 1), 50);
+    int[][][] result = snapModel.getSnap();
+
+    // Column 1 is both selected and before the split
+    assertTrue(result[0][1][0] != 0 || result[0][1][2] != 0);
+    assertArrayEquals(new int[]{255, 0, 0}, result[0][0]);
+    assertArrayEquals(new int[]{0, 0, 255}, result[0][2]);
+    assertArrayEquals(new int[]{0, 255, 255}, result[1][1]);
+  }
+
+  @Test
+  public void testGreyscaleWithMaskOnlyChangesMaskedPixels() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.toGreyscale(new RectangleMask(4, 4, 0, 0, 2, 1));
+    int[][][] result = snapModel.getSnap();
+
+    // Masked pixels become grey
+    assertEquals(result[0][0][0], result[0][0][1]);
+    assertEquals(result[0][1][1], result[0][1][2]);
+    // Unmasked pixels are left untouched
+    assertArrayEquals(new int[]{0, 0, 255}, result[0][2]);
+    assertArrayEquals(new int[]{255, 0, 255}, result[1][0]);
+  }
+
+  @Test
+  public void testExtractComponentsMatchesSingleComponents() {
+    String[] components = {"red", "green", "blue", "luma", "intensity", "value"};
+    snapModel.loadSnap(mockSnap);
+    Snap[] extracted = snapModel.extractComponents(null, components);
+
+    assertEquals(components.length, extracted.length);
+    for (int c = 0; c < components.length; c++) {
+      SnapModelImpl single = new SnapModelImpl();
+      single.loadSnap(mockSnap);
+      switch (components[c]) {
+        case "red":
+          single.redComponent(null);
+          break;
+        case "green":
+          single.greenComponent(null);
+          break;
+        case "blue":
+          single.blueComponent(null);
+          break;
+        case "luma":
+          single.lumaComponent(null);
+          break;
+        case "intensity":
+          single.intensityComponent(null);
+          break;
+        default:
+          single.valueComponent(null);
+          break;
+      }
+      assertTrue(extracted[c] instanceof SingleChannelSnap);
+      assertArrayEquals(single.getSnap(), extracted[c].getSnap());
+    }
+    // The source image is left unchanged
+    assertArrayEquals(mockSnap.getSnap(), snapModel.getSnap());
+  }
+
+  @Test
+  public void testExtractComponentsWithMask() {
+    Mask mask = new RectangleMask(4, 4, 0, 0, 2, 2);
+    snapModel.loadSnap(mockSnap);
+    Snap[] extracted = snapModel.extractComponents(mask, "luma", "blue");
+
+    SnapModelImpl single = new SnapModelImpl();
+    single.loadSnap(mockSnap);
+    single.lumaComponent(mask);
+    assertArrayEquals(single.getSnap(), extracted[0].getSnap());
+
+    single.loadSnap(mockSnap);
+    single.blueComponent(mask);
+    assertArrayEquals(single.getSnap(), extracted[1].getSnap());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testExtractComponentsUnsupported() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.extractComponents(null, "red", "hue");
+  }
+
+  @Test
+  public void testGreyscaleIsSingleChannel() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.toGreyscale(null);
+    Snap grey = snapModel.getCurrentSnap();
+
+    assertTrue(grey instanceof SingleChannelSnap);
+    assertEquals(SingleChannelSnap.Tint.GREY, ((SingleChannelSnap) grey).getTint());
+    // 0.2126 * 255 + 0.7152 * 100 + 0.0722 * 50 rounds to 129
+    assertEquals(129, ((SingleChannelSnap) grey).getValue(3, 0));
+    assertArrayEquals(new int[]{129, 129, 129}, grey.getPixelValue(3, 0));
+  }
+
+  @Test
+  public void testRGBSplitIsTintedSingleChannel() {
+    snapModel.loadSnap(mockSnap);
+    Snap[] split = snapModel.applyRGBSplit();
+
+    assertEquals(SingleChannelSnap.Tint.RED, ((SingleChannelSnap) split[0]).getTint());
+    assertEquals(SingleChannelSnap.Tint.GREEN, ((SingleChannelSnap) split[1]).getTint());
+    assertEquals(SingleChannelSnap.Tint.BLUE, ((SingleChannelSnap) split[2]).getTint());
+    assertArrayEquals(new int[]{255, 0, 0}, split[0].getPixelValue(3, 0));
+    assertArrayEquals(new int[]{0, 100, 0}, split[1].getPixelValue(3, 0));
+    assertArrayEquals(new int[]{0, 0, 50}, split[2].getPixelValue(3, 0));
+  }
+
+  @Test
+  public void testSaveSingleChannelAsPgm() throws IOException {
+    snapModel.loadSnap(mockSnap);
+    snapModel.lumaComponent(null);
+    File pgm = File.createTempFile("luma", ".pgm");
+    pgm.deleteOnExit();
+
+    SnapUtil.writeSnap(snapModel.getCurrentSnap(), pgm.getPath());
+
+    // An 11 byte header followed by one byte per pixel
+    assertEquals(11 + 16, pgm.length());
+    assertArrayEquals(snapModel.getSnap(), SnapUtil.readSnap(pgm.getPath()));
+  }
+
+  @Test
+  public void testSaveGreyAsGreyscalePng() throws IOException {
+    snapModel.loadSnap(mockSnap);
+    snapModel.toGreyscale(null);
+    File png = File.createTempFile("grey", ".png");
+    png.deleteOnExit();
+
+    SnapUtil.writeSnap(snapModel.getCurrentSnap(), png.getPath());
+
+    assertArrayEquals(snapModel.getSnap(), SnapUtil.readSnap(png.getPath()));
+  }
+
+  @Test
+  public void testProbeSizeAndLoadPng() throws IOException {
+    int[][][] pixels = new int[3][5][3];
+    pixels[2][4] = new int[]{10, 20, 30};
+    File png = File.createTempFile("probe", ".png");
+    png.deleteOnExit();
+    SnapUtil.writeSnap(new SnapImpl(pixels), png.getPath());
+
+    assertArrayEquals(new int[]{5, 3}, SnapUtil.probeSize(png.getPath()));
+    assertEquals(5, SnapUtil.getWidth(png.getPath()));
+    assertEquals(3, SnapUtil.getHeight(png.getPath()));
+
+    Snap loaded = SnapUtil.loadSnap(png.getPath());
+    assertEquals(5, loaded.getSnapWidth());
+    assertEquals(3, loaded.getSnapHeight());
+    assertArrayEquals(pixels, loaded.getSnap());
+  }
+
+  @Test
+  public void testReadPngWithAlpha() throws IOException {
+    BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_4BYTE_ABGR);
+    image.setRGB(0, 0, 0x80102030);
+    image.setRGB(2, 1, 0xFF405060);
+    File png = File.createTempFile("alpha", ".png");
+    png.deleteOnExit();
+    ImageIO.write(image, "png", png);
+
+    int[][][] read = SnapUtil.readSnap(png.getPath());
+
+    assertArrayEquals(new int[]{0x10, 0x20, 0x30}, read[0][0]);
+    assertArrayEquals(new int[]{0x40, 0x50, 0x60}, read[1][2]);
+    assertArrayEquals(new int[]{0, 0, 0}, read[1][0]);
+  }
+
+  @Test
+  public void testReadPlainPpmWithSamplesSharingLines() throws IOException {
+    File ppm = File.createTempFile("plain", ".ppm");
+    ppm.deleteOnExit();
+    try (FileWriter writer = new FileWriter(ppm)) {
+      writer.write("P3 # two by two\n2 2\n255\n"
+              + "0 10 20  30 40 50 # first row\n"
+              + "60 70\t80\n# a comment line\n90 100 110\n");
+    }
+
+    int[][][] read = SnapUtil.readSnap(ppm.getPath());
+
+    assertArrayEquals(new int[][][]{
+        {{0, 10, 20}, {30, 40, 50}},
+        {{60, 70, 80}, {90, 100, 110}}}, read);
+  }
+
+  @Test
+  public void testReadAndMapBinaryPpm() throws IOException {
+    File ppm = File.createTempFile("binary", ".ppm");
+    ppm.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(ppm)) {
+      out.write("P6 # two by one\n2\n# width above\n1 255\n".getBytes());
+      out.write(new byte[]{10, 20, 30, (byte) 200, (byte) 210, (byte) 220});
+    }
+    int[][][] expected = {{{10, 20, 30}, {200, 210, 220}}};
+
+    assertArrayEquals(expected, SnapUtil.readSnap(ppm.getPath()));
+    assertArrayEquals(new int[]{2, 1}, SnapUtil.probeSize(ppm.getPath()));
+
+    Snap mapped = SnapUtil.mapSnap(ppm.getPath());
+    assertArrayEquals(new int[]{200, 210, 220}, mapped.getPixelValue(0, 1));
+    assertEquals(new SnapImpl(expected).getStatistics().getContentHash(),
+            mapped.getStatistics().getContentHash());
+    assertEquals(210, mapped.getStatistics().getMaximum(1));
+    assertArrayEquals(expected, mapped.getSnap());
+  }
+
+  @Test
+  public void testSaveAsBinaryPpm() throws IOException {
+    File ppm = File.createTempFile("binary", ".ppm");
+    ppm.deleteOnExit();
+
+    SnapUtil.writeSnap(mockSnap, ppm.getPath(), true);
+
+    byte[] header = "P6\n4 4\n255\n".getBytes();
+    assertEquals(header.length + 4 * 4 * 3, ppm.length());
+    try (FileInputStream in = new FileInputStream(ppm)) {
+      assertArrayEquals(header, in.readNBytes(header.length));
+    }
+    assertArrayEquals(mockSnap.getSnap(), SnapUtil.readSnap(ppm.getPath()));
+  }
+
+  @Test
+  public void testSaveAsSnapWavelet() throws IOException {
+    File snapw = File.createTempFile("sparse", ".snapw");
+    snapw.deleteOnExit();
+
+    SnapUtil.writeSnap(mockSnap, snapw.getPath());
+    int[][][] original = mockSnap.getSnap();
+    int[][][] read = SnapUtil.readSnap(snapw.getPath());
+
+    assertEquals(4, SnapUtil.getWidth(snapw.getPath()));
+    assertEquals(4, SnapUtil.getHeight(snapw.getPath()));
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        for (int k = 0; k < 3; k++) {
+          assertTrue(Math.abs(original[i][j][k] - read[i][j][k]) <= 1);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSnapWaveletReadsCoarseStagesFirst() throws IOException {
+    File snapw = File.createTempFile("sparse", ".snapw");
+    snapw.deleteOnExit();
+    SnapUtil.writeSnap(mockSnap, snapw.getPath());
+
+    try (SnapWaveletReader reader = new SnapWaveletReader(new FileInputStream(snapw))) {
+      assertEquals(3, reader.getStageCount());
+      assertTrue(reader.readStage());
+
+      // The coarsest stage is the average of the whole image
+      int[][][] preview = reader.getSnap().getSnap();
+      for (int[][] row : preview) {
+        for (int[] pixel : row) {
+          assertArrayEquals(preview[0][0], pixel);
+        }
+      }
+
+      reader.readAll();
+      assertEquals(3, reader.getStagesRead());
+      assertArrayEquals(SnapUtil.readSnap(snapw.getPath()), reader.getSnap().getSnap());
+    }
+  }
+
   @Test
   public void testApplyRGBCombine() {
     int[][][] redChannel = {
@@ -739,6 +1278,88 @@ public class SnapModelTest {
     assertArrayEquals(expectedBlues, frequencies[2]);
   }
 
+  @Test
+  public void testStatisticsAreComputedOnce() {
+    SnapStatistics statistics = mockSnap.getStatistics();
+
+    assertTrue(statistics == mockSnap.getStatistics());
+    assertEquals(0, statistics.getMinimum(0));
+    assertEquals(255, statistics.getMaximum(0));
+    assertEquals((255 * 5 + 128 + 64 + 192 + 32 + 50 + 100 + 150) / 16.0,
+            statistics.getMean(0), 1e-9);
+    assertEquals(new SnapImpl(mockSnap.getSnap().clone()).getStatistics().getContentHash(),
+            statistics.getContentHash());
+  }
+
+  @Test
+  public void testStatisticsInvalidatedAfterWrite() {
+    long hash = mockSnap.getStatistics().getContentHash();
+
+    mockSnap.getSnap()[1][3] = new int[]{255, 255, 255};
+    mockSnap.invalidateStatistics();
+
+    assertEquals(6, mockSnap.getStatistics().getFrequencies()[0][255]);
+    assertTrue(hash != mockSnap.getStatistics().getContentHash());
+  }
+
+  @Test
+  public void testSizedHistogram() {
+    snapModel.loadSnap(mockSnap);
+    snapModel.histogramComponent(400, 120);
+
+    assertEquals(400, snapModel.getSnapWidth());
+    assertEquals(120, snapModel.getSnapHeight());
+    // Grid lines every 10 pixels over a white background
+    assertArrayEquals(new int[]{128, 128, 128}, snapModel.getCurrentSnap().getPixelValue(20, 5));
+    assertArrayEquals(new int[]{255, 255, 255}, snapModel.getCurrentSnap().getPixelValue(5, 5));
+    // Value 255 is the most common red value, so it reaches the top at the last column
+    assertArrayEquals(new int[]{255, 0, 0}, snapModel.getCurrentSnap().getPixelValue(0, 399));
+  }
+
+  @Test
+  public void testStatisticsClampOutOfRangeValues() {
+    int[][][] pixels = new int[1][2][3];
+    pixels[0][0] = new int[]{-20, 300, 40};
+    pixels[0][1] = new int[]{10, 255, 999};
+    SnapStatistics statistics = new SnapImpl(pixels).getStatistics();
+
+    int[][] frequencies = statistics.getFrequencies();
+    assertEquals(1, frequencies[0][0]);
+    assertEquals(2, frequencies[1][255]);
+    assertEquals(1, frequencies[2][255]);
+    assertEquals(0, statistics.getMinimum(0));
+    assertEquals(255, statistics.getMaximum(2));
+  }
+
+  @Test
+  public void testHistogramSizeTooLarge() {
+    snapModel.loadSnap(mockSnap);
+    assertThrows(IllegalArgumentException.class,
+        () -> snapModel.histogramComponent(4097, 4096));
+    // The area of this size overflows an int
+    assertThrows(IllegalArgumentException.class,
+        () -> snapModel.histogramComponent(65536, 65536));
+  }
+
+  @Test
+  public void testHistogramOfLargeSnap() {
+    // Large enough to be counted in parallel bands
+    int[][][] pixels = new int[300][400][3];
+    int[][] expected = new int[3][256];
+    for (int i = 0; i < 300; i++) {
+      for (int j = 0; j < 400; j++) {
+        pixels[i][j] = new int[]{(i + j) % 256, (i * j) % 256, i % 256};
+        for (int k = 0; k < 3; k++) {
+          expected[k][pixels[i][j][k]]++;
+        }
+      }
+    }
+
+    int[][] frequencies = new HistogramGeneratorImpl().getFrequencies(new SnapImpl(pixels));
+
+    assertArrayEquals(expected, frequencies);
+  }
+
   @Test
   public void testExtractValueComponent() {
     int[][][] pixelData = {
@@ -896,6 +1517,85 @@ public class SnapModelTest {
 
   }
 
+  @Test
+  public void testLevelsAdjustSplit() {
+    int[][][] pixels = {
+            {{0, 0, 200}, {0, 50, 50}},
+            {{255, 255, 255}, {0, 0, 0}}
+    };
+    snapModel.loadSnap(new SnapImpl(pixels));
+    snapModel.levelAdjustment(0, 10, 205, 50);
+
+    // Only the left half is adjusted
+    int[][][] expectedValueData = {
+            {{0, 0, 255}, {0, 50, 50}},
+            {{0, 0, 0}, {0, 0, 0}}
+    };
+    assertArrayEquals(expectedValueData, snapModel.getSnap());
+  }
+
+  @Test
+  public void testAutoLevels() {
+    int[][][] pixels = {{{50, 60, 0}, {100, 60, 255}, {150, 60, 128}}};
+    snapModel.loadSnap(new SnapImpl(pixels));
+
+    snapModel.autoLevelsComponent(0, null);
+
+    // Red is stretched from 50-150 to 0-255, a flat green is left alone and blue already spans
+    // the full range
+    int[][][] expected = {{{0, 60, 0}, {127, 60, 255}, {255, 60, 128}}};
+    assertArrayEquals(expected, snapModel.getSnap());
+  }
+
+  @Test
+  public void testEqualize() {
+    int[][][] pixels = {{{10, 0, 0}, {20, 0, 0}, {30, 0, 0}, {40, 0, 0}}};
+    snapModel.loadSnap(new SnapImpl(pixels));
+
+    snapModel.equalizeComponent(null);
+
+    int[][][] expected = {{{0, 0, 0}, {85, 0, 0}, {170, 0, 0}, {255, 0, 0}}};
+    assertArrayEquals(expected, snapModel.getSnap());
+  }
+
+  @Test
+  public void testEqualizeWithMaskAndSplit() {
+    int[][][] pixels = {
+            {{10, 10, 10}, {20, 20, 20}, {30, 30, 30}, {40, 40, 40}},
+            {{10, 10, 10}, {20, 20, 20}, {30, 30, 30}, {40, 40, 40}}
+    };
+    snapModel.loadSnap(new SnapImpl(pixels));
+
+    // Only the top row is selected, and only its left half is before the split
+    snapModel.equalizeComponent(new RectangleMask(4, 2, 0, 0, 4, 1), 50);
+
+    int[][][] expected = {
+            {{0, 0, 0}, {85, 85, 85}, {30, 30, 30}, {40, 40, 40}},
+            {{10, 10, 10}, {20, 20, 20}, {30, 30, 30}, {40, 40, 40}}
+    };
+    assertArrayEquals(expected, snapModel.getSnap());
+  }
+
+  @Test
+  public void testColorCorrectionLeavesInputUntouched() {
+    int[][][] pixels = new int[4][4][3];
+    for (int i = 0; i < 4; i++) {
+      for (int j = 0; j < 4; j++) {
+        pixels[i][j] = new int[]{40 + i, 60 + j, 80};
+      }
+    }
+    Snap snap = new SnapImpl(pixels);
+    SnapStatistics statistics = snap.getStatistics();
+    snapModel.loadSnap(snap);
+
+    snapModel.colorCorrectionComponent();
+
+    // The peaks are 40, 60 and 80 around an average of 60, so red drops 20 and blue gains 20
+    assertArrayEquals(new int[]{20, 60, 100}, snapModel.getCurrentSnap().getPixelValue(0, 0));
+    assertArrayEquals(new int[]{40, 60, 80}, snap.getPixelValue(0, 0));
+    assertTrue(statistics == snap.getStatistics());
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testColorCorrectionInvalidSplitPercentage() {
     // Setup: Initialize snap with known pixel values